@@ -0,0 +1,66 @@
+import com.bulletphysics.Transform;
+import com.bulletphysics.collision.broadphase.DbvtBroadPhase;
+import com.bulletphysics.collision.dispatch.CollisionDispatcher;
+import com.bulletphysics.collision.dispatch.CollisionObject;
+import com.bulletphysics.collision.dispatch.CollisionWorld;
+import com.bulletphysics.collision.shapes.BoxShape;
+import com.bulletphysics.collision.shapes.SphereShape;
+
+import javax.vecmath.Vector3;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+public class SweepAllocationBenchmark {
+    private static final int GRID_SIZE = 10;
+    private static final int WARMUP_SWEEPS = 10000;
+    private static final int MEASURED_SWEEPS = 20000;
+
+    public static void main(String[] args) {
+        var world = new CollisionWorld(new CollisionDispatcher(), new DbvtBroadPhase());
+        var sphere = new SphereShape(0.5f);
+        var box = new BoxShape(new Vector3(0.5f, 0.5f, 0.5f));
+        var trans = new Transform().identity();
+        for (var x = 0; x < GRID_SIZE; x++) {
+            for (var y = 0; y < GRID_SIZE; y++) {
+                for (var z = 0; z < GRID_SIZE; z++) {
+                    var colObj = new CollisionObject();
+                    trans.origin.set(x * 2f, y * 2f, z * 2f);
+                    colObj.setWorldTransform(trans);
+                    colObj.setCollisionShape((x + y + z & 1) == 0 ? sphere : box);
+                    world.addCollisionObject(colObj, (short) 1, (short) -1);
+                }
+            }
+        }
+        world.performDiscreteCollisionDetection();
+        var castShape = new SphereShape(0.25f);
+        var from = new Transform().identity();
+        var to = new Transform().identity();
+        var callback = new CollisionWorld.ClosestConvexResultCallback(from.origin, to.origin);
+        var random = new Random(1);
+        var hits = sweep(world, castShape, from, to, callback, random, WARMUP_SWEEPS);
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var threadId = Thread.currentThread().getId();
+        var bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        var start = System.nanoTime();
+        hits = sweep(world, castShape, from, to, callback, random, MEASURED_SWEEPS);
+        var elapsed = System.nanoTime() - start;
+        var bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+        System.out.printf("sweeps=%d hits=%d bytes=%d bytesPerSweep=%.2f time=%.1fms%n", MEASURED_SWEEPS, hits, bytes, (double) bytes / MEASURED_SWEEPS, elapsed / 1e6);
+    }
+
+    private static int sweep(CollisionWorld world, SphereShape castShape, Transform from, Transform to, CollisionWorld.ClosestConvexResultCallback callback, Random random, int count) {
+        var extent = GRID_SIZE * 2f;
+        var hits = 0;
+        for (var i = 0; i < count; i++) {
+            from.origin.set(-2f, random.nextFloat() * extent, random.nextFloat() * extent);
+            to.origin.set(extent + 2f, random.nextFloat() * extent, random.nextFloat() * extent);
+            callback.closestHitFraction = 1f;
+            callback.hitCollisionObject = null;
+            world.convexSweepTest(castShape, from, to, callback);
+            if (callback.hasHit()) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
@@ -1,34 +1,39 @@
 package com.bulletphysics;
 
-import javax.vecmath.Matrix3;
 import javax.vecmath.Vector3;
 
+import static java.lang.Math.abs;
+
 public class AabbUtil2 {
     public static boolean rayAabb(Vector3 rayFrom, Vector3 rayTo, Vector3 aabbMin, Vector3 aabbMax, float[] param, Vector3 normal) {
         var aabbHalfExtent = new Vector3(aabbMax).sub(aabbMin).mul(0.5f);
         var aabbCenter = new Vector3(aabbMax).add(aabbMin).mul(0.5f);
         var source = new Vector3(rayFrom).sub(aabbCenter);
         var target = new Vector3(rayTo).sub(aabbCenter);
+        return rayAabb(source, target, aabbHalfExtent, param, normal);
+    }
+
+    public static boolean rayAabb(Vector3 source, Vector3 target, Vector3 aabbHalfExtent, float[] param, Vector3 normal) {
         var sourceOutCode = outCode(source, aabbHalfExtent);
         var targetOutCode = outCode(target, aabbHalfExtent);
         if ((sourceOutCode & targetOutCode) == 0x0) {
             var lambda_enter = 0f;
             var lambda_exit = param[0];
-            var r = new Vector3(target).sub(source);
             var normSign = 1f;
             var bit = 1;
-            var hitNormal = new Vector3();
+            var hitAxis = -1;
+            var hitSign = 0f;
             for (var j = 0; j < 2; ++j) {
                 for (var i = 0; i != 3; ++i) {
                     if ((sourceOutCode & bit) != 0) {
-                        var lambda = (-source.getCoord(i) - aabbHalfExtent.getCoord(i) * normSign) / r.getCoord(i);
+                        var lambda = (-source.getCoord(i) - aabbHalfExtent.getCoord(i) * normSign) / (target.getCoord(i) - source.getCoord(i));
                         if (lambda_enter <= lambda) {
                             lambda_enter = lambda;
-                            hitNormal.set(0f, 0f, 0f);
-                            hitNormal.setCoord(i, normSign);
+                            hitAxis = i;
+                            hitSign = normSign;
                         }
                     } else if ((targetOutCode & bit) != 0) {
-                        var lambda = (-source.getCoord(i) - aabbHalfExtent.getCoord(i) * normSign) / r.getCoord(i);
+                        var lambda = (-source.getCoord(i) - aabbHalfExtent.getCoord(i) * normSign) / (target.getCoord(i) - source.getCoord(i));
                         lambda_exit = Math.min(lambda_exit, lambda);
                     }
                     bit <<= 1;
@@ -37,33 +42,91 @@ public class AabbUtil2 {
             }
             if (lambda_enter <= lambda_exit) {
                 param[0] = lambda_enter;
-                normal.set(hitNormal);
+                normal.set(0f, 0f, 0f);
+                if (hitAxis >= 0) {
+                    normal.setCoord(hitAxis, hitSign);
+                }
                 return true;
             }
         }
         return false;
     }
 
+    public static boolean rayAabb2(Vector3 rayFrom, Vector3 rayDelta, float minX, float minY, float minZ, float maxX, float maxY, float maxZ, float lambdaMax) {
+        var tmin = 0f;
+        var tmax = lambdaMax;
+        if (rayDelta.x == 0f) {
+            if (rayFrom.x < minX || rayFrom.x > maxX) {
+                return false;
+            }
+        } else {
+            var inv = 1f / rayDelta.x;
+            var t0 = (minX - rayFrom.x) * inv;
+            var t1 = (maxX - rayFrom.x) * inv;
+            tmin = Math.max(tmin, Math.min(t0, t1));
+            tmax = Math.min(tmax, Math.max(t0, t1));
+            if (tmin > tmax) {
+                return false;
+            }
+        }
+        if (rayDelta.y == 0f) {
+            if (rayFrom.y < minY || rayFrom.y > maxY) {
+                return false;
+            }
+        } else {
+            var inv = 1f / rayDelta.y;
+            var t0 = (minY - rayFrom.y) * inv;
+            var t1 = (maxY - rayFrom.y) * inv;
+            tmin = Math.max(tmin, Math.min(t0, t1));
+            tmax = Math.min(tmax, Math.max(t0, t1));
+            if (tmin > tmax) {
+                return false;
+            }
+        }
+        if (rayDelta.z == 0f) {
+            return rayFrom.z >= minZ && rayFrom.z <= maxZ;
+        }
+        var inv = 1f / rayDelta.z;
+        var t0 = (minZ - rayFrom.z) * inv;
+        var t1 = (maxZ - rayFrom.z) * inv;
+        tmin = Math.max(tmin, Math.min(t0, t1));
+        tmax = Math.min(tmax, Math.max(t0, t1));
+        return tmin <= tmax;
+    }
+
+    public static boolean testAabbAgainstAabb2(Vector3 aabbMin1, Vector3 aabbMax1, Vector3 aabbMin2, Vector3 aabbMax2) {
+        return aabbMin1.x <= aabbMax2.x && aabbMax1.x >= aabbMin2.x && aabbMin1.y <= aabbMax2.y && aabbMax1.y >= aabbMin2.y && aabbMin1.z <= aabbMax2.z && aabbMax1.z >= aabbMin2.z;
+    }
+
     public static void transformAabb(Vector3 halfExtents, float margin, Transform t, Vector3 aabbMinOut, Vector3 aabbMaxOut) {
-        var halfExtentsWithMargin = new Vector3(halfExtents.x + margin, halfExtents.y + margin, halfExtents.z + margin);
-        var absBasis = new Matrix3(t.basis).absolute();
-        var tmp = new Vector3();
-        var extent = new Vector3(absBasis.getRow(0, tmp).dot(halfExtentsWithMargin), absBasis.getRow(1, tmp).dot(halfExtentsWithMargin), absBasis.getRow(2, tmp).dot(halfExtentsWithMargin));
-        aabbMinOut.set(t.origin).sub(extent);
-        aabbMaxOut.set(t.origin).add(extent);
+        var b = t.basis;
+        var hx = halfExtents.x + margin;
+        var hy = halfExtents.y + margin;
+        var hz = halfExtents.z + margin;
+        var ex = abs(b.m00) * hx + abs(b.m01) * hy + abs(b.m02) * hz;
+        var ey = abs(b.m10) * hx + abs(b.m11) * hy + abs(b.m12) * hz;
+        var ez = abs(b.m20) * hx + abs(b.m21) * hy + abs(b.m22) * hz;
+        var o = t.origin;
+        aabbMinOut.set(o.x - ex, o.y - ey, o.z - ez);
+        aabbMaxOut.set(o.x + ex, o.y + ey, o.z + ez);
     }
 
     public static void transformAabb(Vector3 localAabbMin, Vector3 localAabbMax, float margin, Transform trans, Vector3 aabbMinOut, Vector3 aabbMaxOut) {
-        var center = trans.transform(new Vector3(localAabbMax).add(localAabbMin).mul(0.5f));
-        var localHalfExtents = new Vector3(localAabbMax).sub(localAabbMin).mul(0.5f);
-        localHalfExtents.x += margin;
-        localHalfExtents.y += margin;
-        localHalfExtents.z += margin;
-        var absBasis = new Matrix3(trans.basis).absolute();
-        var tmp = new Vector3();
-        var extent = new Vector3(absBasis.getRow(0, tmp).dot(localHalfExtents), absBasis.getRow(1, tmp).dot(localHalfExtents), absBasis.getRow(2, tmp).dot(localHalfExtents));
-        aabbMinOut.set(center).sub(extent);
-        aabbMaxOut.set(center).add(extent);
+        var b = trans.basis;
+        var lx = (localAabbMax.x + localAabbMin.x) * 0.5f;
+        var ly = (localAabbMax.y + localAabbMin.y) * 0.5f;
+        var lz = (localAabbMax.z + localAabbMin.z) * 0.5f;
+        var cx = b.m00 * lx + b.m01 * ly + b.m02 * lz + trans.origin.x;
+        var cy = b.m10 * lx + b.m11 * ly + b.m12 * lz + trans.origin.y;
+        var cz = b.m20 * lx + b.m21 * ly + b.m22 * lz + trans.origin.z;
+        var hx = (localAabbMax.x - localAabbMin.x) * 0.5f + margin;
+        var hy = (localAabbMax.y - localAabbMin.y) * 0.5f + margin;
+        var hz = (localAabbMax.z - localAabbMin.z) * 0.5f + margin;
+        var ex = abs(b.m00) * hx + abs(b.m01) * hy + abs(b.m02) * hz;
+        var ey = abs(b.m10) * hx + abs(b.m11) * hy + abs(b.m12) * hz;
+        var ez = abs(b.m20) * hx + abs(b.m21) * hy + abs(b.m22) * hz;
+        aabbMinOut.set(cx - ex, cy - ey, cz - ez);
+        aabbMaxOut.set(cx + ex, cy + ey, cz + ez);
     }
 
     private static int outCode(Vector3 p, Vector3 halfExtent) {
@@ -3,7 +3,6 @@ package com.bulletphysics;
 import java.util.AbstractList;
 import java.util.Objects;
 import java.util.RandomAccess;
-import java.util.stream.IntStream;
 
 public final class ArrayList<T> extends AbstractList<T> implements RandomAccess {
     private T[] array;
@@ -72,9 +71,12 @@ public final class ArrayList<T> extends AbstractList<T> implements RandomAccess
 
     @Override
     public int indexOf(Object o) {
-        var _size = size;
-        var _array = array;
-        return IntStream.range(0, _size).filter(i -> Objects.equals(o, _array[i])).findFirst().orElse(-1);
+        for (var i = 0; i < size; i++) {
+            if (Objects.equals(o, array[i])) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     @SuppressWarnings("unchecked")
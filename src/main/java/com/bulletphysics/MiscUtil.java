@@ -62,4 +62,36 @@ public class MiscUtil {
             quickSortInternal(list, comparator, i, hi);
         }
     }
+
+    public static void quickSort(int[] indices, float[] keys, int count) {
+        if (count > 1) {
+            quickSortInternal(indices, keys, 0, count - 1);
+        }
+    }
+
+    private static void quickSortInternal(int[] indices, float[] keys, int lo, int hi) {
+        int i = lo, j = hi;
+        var x = keys[indices[(lo + hi) / 2]];
+        do {
+            while (keys[indices[i]] < x) {
+                i++;
+            }
+            while (x < keys[indices[j]]) {
+                j--;
+            }
+            if (i <= j) {
+                var temp = indices[i];
+                indices[i] = indices[j];
+                indices[j] = temp;
+                i++;
+                j--;
+            }
+        } while (i <= j);
+        if (lo < j) {
+            quickSortInternal(indices, keys, lo, j);
+        }
+        if (i < hi) {
+            quickSortInternal(indices, keys, i, hi);
+        }
+    }
 }
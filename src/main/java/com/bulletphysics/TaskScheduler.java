@@ -0,0 +1,65 @@
+package com.bulletphysics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class TaskScheduler {
+    private final ForkJoinPool pool;
+    private final int threadCount;
+
+    public TaskScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public TaskScheduler(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+        pool = this.threadCount > 1 ? new ForkJoinPool(this.threadCount) : null;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void parallelFor(int taskCount, Task task) {
+        if (pool == null || taskCount <= 1) {
+            for (var i = 0; i < taskCount; i++) {
+                task.run(i);
+            }
+        } else {
+            pool.invoke(new RangeAction(task, 0, taskCount));
+        }
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public interface Task {
+        void run(int taskIndex);
+    }
+
+    private static class RangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Task task;
+        private final int from;
+        private final int to;
+
+        public RangeAction(Task task, int from, int to) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                task.run(from);
+            } else {
+                var mid = from + to >>> 1;
+                invokeAll(new RangeAction(task, from, mid), new RangeAction(task, mid, to));
+            }
+        }
+    }
+}
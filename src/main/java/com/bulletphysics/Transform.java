@@ -77,7 +77,7 @@ public final class Transform {
     }
 
     public Transform invXform(Vector3 inVec, Vector3 out) {
-        out.set(inVec).sub(origin).transform(new Matrix3(basis).transpose());
+        basis.transposeTransform(out, out.set(inVec).sub(origin));
         return this;
     }
 
@@ -152,18 +152,23 @@ public final class Transform {
     }
 
     public static void calculateVelocity(Transform transform0, Transform transform1, float timeStep, Vector3 linVel, Vector3 angVel) {
+        calculateVelocity(transform0, transform1, timeStep, linVel, angVel, new Matrix3(), new Quaternion());
+    }
+
+    public static void calculateVelocity(Transform transform0, Transform transform1, float timeStep, Vector3 linVel, Vector3 angVel, Matrix3 tmpBasis, Quaternion tmpRotation) {
         linVel.set(transform1.origin).sub(transform0.origin);
         linVel.mul(1f / timeStep);
-        var angle = new float[1];
-        var axis = new Vector3();
-        calculateDiffAxisAngle(transform0, transform1, axis, angle);
-        angVel.set(axis).mul(angle[0] / timeStep);
+        var angle = calculateDiffAxisAngle(transform0, transform1, angVel, tmpBasis, tmpRotation);
+        angVel.mul(angle / timeStep);
     }
 
     public static void calculateDiffAxisAngle(Transform transform0, Transform transform1, Vector3 axis, float[] angle) {
-        var dmat = new Matrix3().mul(transform1.basis, new Matrix3(transform0.basis).invert());
-        var dorn = dmat.getRotation(new Quaternion()).normalize();
-        angle[0] = dorn.getAngle();
+        angle[0] = calculateDiffAxisAngle(transform0, transform1, axis, new Matrix3(), new Quaternion());
+    }
+
+    private static float calculateDiffAxisAngle(Transform transform0, Transform transform1, Vector3 axis, Matrix3 tmpBasis, Quaternion tmpRotation) {
+        var dmat = tmpBasis.set(transform0.basis).invert().mul(transform1.basis, tmpBasis);
+        var dorn = dmat.getRotation(tmpRotation).normalize();
         axis.set(dorn.x, dorn.y, dorn.z);
         var len = axis.lengthSquared();
         if (len < BulletGlobals.EPSILON * BulletGlobals.EPSILON) {
@@ -171,5 +176,6 @@ public final class Transform {
         } else {
             axis.mul((float) (1 / Math.sqrt(len)));
         }
+        return dorn.getAngle();
     }
 }
@@ -0,0 +1,273 @@
+package com.bulletphysics.collision.broadphase;
+
+import com.bulletphysics.AabbUtil2;
+
+import javax.vecmath.Vector3;
+
+public class AxisSweep3 extends BroadPhaseInterface {
+    public static final int HANDLE_SENTINEL = 0x7fffffff;
+    public static final int HANDLE_MASK = 0x7ffffffe;
+    public static final int DEFAULT_MAX_HANDLES = 16384;
+    public final OverlappingPairCache paircache;
+    private final Vector3 worldAabbMin = new Vector3();
+    private final Vector3 worldAabbMax = new Vector3();
+    private final double[] quantize = new double[3];
+    private final int[] quantizedMin = new int[3];
+    private final int[] quantizedMax = new int[3];
+    private final int[][] edgePos = new int[3][];
+    private final int[][] edgeHandle = new int[3][];
+    private AxisSweep3Proxy[] handles;
+    private int numHandles = 0;
+    private final StalePairCallback stalePairCallback = new StalePairCallback();
+
+    public AxisSweep3(Vector3 worldAabbMin, Vector3 worldAabbMax) {
+        this(worldAabbMin, worldAabbMax, DEFAULT_MAX_HANDLES, null);
+    }
+
+    public AxisSweep3(Vector3 worldAabbMin, Vector3 worldAabbMax, int maxHandles, OverlappingPairCache paircache) {
+        this.paircache = paircache != null ? paircache : new HashedOverlappingPairCache();
+        this.worldAabbMin.set(worldAabbMin);
+        this.worldAabbMax.set(worldAabbMax);
+        for (var axis = 0; axis < 3; axis++) {
+            quantize[axis] = (HANDLE_SENTINEL - 2) / ((double) worldAabbMax.getCoord(axis) - worldAabbMin.getCoord(axis));
+        }
+        var capacity = Math.max(2, maxHandles + 1);
+        handles = new AxisSweep3Proxy[capacity];
+        var sentinel = new AxisSweep3Proxy(null, (short) 0, (short) 0);
+        handles[0] = sentinel;
+        for (var axis = 0; axis < 3; axis++) {
+            edgePos[axis] = new int[capacity * 2];
+            edgeHandle[axis] = new int[capacity * 2];
+            edgePos[axis][0] = 0;
+            edgeHandle[axis][0] = 0;
+            edgePos[axis][1] = HANDLE_SENTINEL;
+            edgeHandle[axis][1] = 0;
+            sentinel.minEdges[axis] = 0;
+            sentinel.maxEdges[axis] = 1;
+        }
+    }
+
+    public BroadPhaseProxy createProxy(Vector3 aabbMin, Vector3 aabbMax, Object userPtr, short collisionFilterGroup, short collisionFilterMask) {
+        quantize(quantizedMin, aabbMin, 0);
+        quantize(quantizedMax, aabbMax, 1);
+        if (numHandles + 1 == handles.length) {
+            growHandles();
+        }
+        var handle = ++numHandles;
+        var proxy = new AxisSweep3Proxy(userPtr, collisionFilterGroup, collisionFilterMask);
+        proxy.uniqueId = handle;
+        proxy.aabbMin.set(aabbMin);
+        proxy.aabbMax.set(aabbMax);
+        handles[handle] = proxy;
+        var limit = handle * 2;
+        for (var axis = 0; axis < 3; axis++) {
+            var pos = edgePos[axis];
+            var owner = edgeHandle[axis];
+            handles[0].maxEdges[axis] += 2;
+            pos[limit + 1] = pos[limit - 1];
+            owner[limit + 1] = owner[limit - 1];
+            pos[limit - 1] = quantizedMin[axis];
+            owner[limit - 1] = handle;
+            pos[limit] = quantizedMax[axis];
+            owner[limit] = handle;
+            proxy.minEdges[axis] = limit - 1;
+            proxy.maxEdges[axis] = limit;
+        }
+        sortMinDown(0, proxy.minEdges[0], false);
+        sortMaxDown(0, proxy.maxEdges[0]);
+        sortMinDown(1, proxy.minEdges[1], false);
+        sortMaxDown(1, proxy.maxEdges[1]);
+        sortMinDown(2, proxy.minEdges[2], true);
+        sortMaxDown(2, proxy.maxEdges[2]);
+        return proxy;
+    }
+
+    public void setAabb(BroadPhaseProxy absproxy, Vector3 aabbMin, Vector3 aabbMax) {
+        var proxy = (AxisSweep3Proxy) absproxy;
+        proxy.aabbMin.set(aabbMin);
+        proxy.aabbMax.set(aabbMax);
+        quantize(quantizedMin, aabbMin, 0);
+        quantize(quantizedMax, aabbMax, 1);
+        for (var axis = 0; axis < 3; axis++) {
+            var pos = edgePos[axis];
+            var emin = proxy.minEdges[axis];
+            var emax = proxy.maxEdges[axis];
+            var dmin = quantizedMin[axis] - pos[emin];
+            var dmax = quantizedMax[axis] - pos[emax];
+            pos[emin] = quantizedMin[axis];
+            pos[emax] = quantizedMax[axis];
+            if (dmin < 0) {
+                sortMinDown(axis, emin, true);
+            }
+            if (dmax > 0) {
+                sortMaxUp(axis, emax);
+            }
+            if (dmin > 0) {
+                sortMinUp(axis, emin);
+            }
+            if (dmax < 0) {
+                sortMaxDown(axis, emax);
+            }
+        }
+    }
+
+    public void rayTest(Vector3 rayFrom, Vector3 rayTo, BroadPhaseRayCallback rayCallback, Vector3 aabbMin, Vector3 aabbMax) {
+        var delta = new Vector3(rayTo).sub(rayFrom);
+        for (var i = 1; i <= numHandles; i++) {
+            var proxy = handles[i];
+            var mi = proxy.aabbMin;
+            var mx = proxy.aabbMax;
+            if (AabbUtil2.rayAabb2(rayFrom, delta, mi.x - aabbMax.x, mi.y - aabbMax.y, mi.z - aabbMax.z, mx.x - aabbMin.x, mx.y - aabbMin.y, mx.z - aabbMin.z, rayCallback.lambdaMax)) {
+                rayCallback.process(proxy);
+            }
+        }
+    }
+
+    public void aabbTest(Vector3 aabbMin, Vector3 aabbMax, BroadPhaseAabbCallback callback) {
+        for (var i = 1; i <= numHandles; i++) {
+            var proxy = handles[i];
+            if (AabbUtil2.testAabbAgainstAabb2(proxy.aabbMin, proxy.aabbMax, aabbMin, aabbMax)) {
+                callback.process(proxy);
+            }
+        }
+    }
+
+    public void calculateOverlappingPairs(Dispatcher dispatcher) {
+        paircache.removeOverlappingPairs(stalePairCallback, dispatcher);
+    }
+
+    public OverlappingPairCache getOverlappingPairCache() {
+        return paircache;
+    }
+
+    public int getNumHandles() {
+        return numHandles;
+    }
+
+    public boolean testAabbOverlap(BroadPhaseProxy proxy0, BroadPhaseProxy proxy1) {
+        var a = (AxisSweep3Proxy) proxy0;
+        var b = (AxisSweep3Proxy) proxy1;
+        for (var axis = 0; axis < 3; axis++) {
+            var pos = edgePos[axis];
+            if (pos[a.maxEdges[axis]] < pos[b.minEdges[axis]] || pos[b.maxEdges[axis]] < pos[a.minEdges[axis]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void quantize(int[] out, Vector3 point, int isMax) {
+        for (var axis = 0; axis < 3; axis++) {
+            var v = Math.min(Math.max(point.getCoord(axis), worldAabbMin.getCoord(axis)), worldAabbMax.getCoord(axis));
+            var q = (int) (((double) v - worldAabbMin.getCoord(axis)) * quantize[axis]);
+            out[axis] = q & HANDLE_MASK | isMax;
+        }
+    }
+
+    private void sortMinDown(int axis, int edge, boolean updateOverlaps) {
+        var pos = edgePos[axis];
+        var owner = edgeHandle[axis];
+        var handleEdge = handles[owner[edge]];
+        while (pos[edge] < pos[edge - 1]) {
+            var handlePrev = handles[owner[edge - 1]];
+            var prevIsMax = (pos[edge - 1] & 1) != 0;
+            if (prevIsMax) {
+                handlePrev.maxEdges[axis]++;
+            } else {
+                handlePrev.minEdges[axis]++;
+            }
+            handleEdge.minEdges[axis]--;
+            swap(pos, owner, edge, edge - 1);
+            if (prevIsMax && updateOverlaps && testAabbOverlap(handleEdge, handlePrev)) {
+                paircache.addOverlappingPair(handleEdge, handlePrev);
+            }
+            edge--;
+        }
+    }
+
+    private void sortMinUp(int axis, int edge) {
+        var pos = edgePos[axis];
+        var owner = edgeHandle[axis];
+        var handleEdge = handles[owner[edge]];
+        while (owner[edge + 1] != 0 && pos[edge] >= pos[edge + 1]) {
+            var handleNext = handles[owner[edge + 1]];
+            if ((pos[edge + 1] & 1) != 0) {
+                handleNext.maxEdges[axis]--;
+            } else {
+                handleNext.minEdges[axis]--;
+            }
+            handleEdge.minEdges[axis]++;
+            swap(pos, owner, edge, edge + 1);
+            edge++;
+        }
+    }
+
+    private void sortMaxDown(int axis, int edge) {
+        var pos = edgePos[axis];
+        var owner = edgeHandle[axis];
+        var handleEdge = handles[owner[edge]];
+        while (pos[edge] < pos[edge - 1]) {
+            var handlePrev = handles[owner[edge - 1]];
+            if ((pos[edge - 1] & 1) == 0) {
+                handlePrev.minEdges[axis]++;
+            } else {
+                handlePrev.maxEdges[axis]++;
+            }
+            handleEdge.maxEdges[axis]--;
+            swap(pos, owner, edge, edge - 1);
+            edge--;
+        }
+    }
+
+    private void sortMaxUp(int axis, int edge) {
+        var pos = edgePos[axis];
+        var owner = edgeHandle[axis];
+        var handleEdge = handles[owner[edge]];
+        while (owner[edge + 1] != 0 && pos[edge] >= pos[edge + 1]) {
+            var handleNext = handles[owner[edge + 1]];
+            var nextIsMin = (pos[edge + 1] & 1) == 0;
+            if (nextIsMin) {
+                handleNext.minEdges[axis]--;
+            } else {
+                handleNext.maxEdges[axis]--;
+            }
+            handleEdge.maxEdges[axis]++;
+            swap(pos, owner, edge, edge + 1);
+            if (nextIsMin && testAabbOverlap(handleEdge, handleNext)) {
+                paircache.addOverlappingPair(handleEdge, handleNext);
+            }
+            edge++;
+        }
+    }
+
+    private static void swap(int[] pos, int[] owner, int i, int j) {
+        var tp = pos[i];
+        pos[i] = pos[j];
+        pos[j] = tp;
+        var th = owner[i];
+        owner[i] = owner[j];
+        owner[j] = th;
+    }
+
+    private void growHandles() {
+        var capacity = handles.length << 1;
+        var newHandles = new AxisSweep3Proxy[capacity];
+        System.arraycopy(handles, 0, newHandles, 0, handles.length);
+        handles = newHandles;
+        for (var axis = 0; axis < 3; axis++) {
+            var pos = new int[capacity * 2];
+            var owner = new int[capacity * 2];
+            System.arraycopy(edgePos[axis], 0, pos, 0, edgePos[axis].length);
+            System.arraycopy(edgeHandle[axis], 0, owner, 0, edgeHandle[axis].length);
+            edgePos[axis] = pos;
+            edgeHandle[axis] = owner;
+        }
+    }
+
+    private class StalePairCallback extends OverlapCallback {
+        @Override
+        public boolean processOverlap(BroadPhasePair pair) {
+            return !testAabbOverlap(pair.pProxy0, pair.pProxy1);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.bulletphysics.collision.broadphase;
+
+import javax.vecmath.Vector3;
+
+public class AxisSweep3Proxy extends BroadPhaseProxy {
+    public final Vector3 aabbMin = new Vector3();
+    public final Vector3 aabbMax = new Vector3();
+    public final int[] minEdges = new int[3];
+    public final int[] maxEdges = new int[3];
+
+    public AxisSweep3Proxy(Object userPtr, short collisionFilterGroup, short collisionFilterMask) {
+        super(userPtr, collisionFilterGroup, collisionFilterMask);
+    }
+}
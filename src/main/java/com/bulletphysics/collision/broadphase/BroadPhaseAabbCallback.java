@@ -0,0 +1,5 @@
+package com.bulletphysics.collision.broadphase;
+
+public abstract class BroadPhaseAabbCallback {
+    public abstract void process(BroadPhaseProxy proxy);
+}
@@ -7,6 +7,25 @@ public abstract class BroadPhaseInterface {
 
     public abstract void setAabb(BroadPhaseProxy proxy, Vector3 aabbMin, Vector3 aabbMax);
 
+    public void setAabbs(BroadPhaseProxy[] proxies, float[] mins, float[] maxs, int count) {
+        var aabbMin = new Vector3();
+        var aabbMax = new Vector3();
+        for (var i = 0; i < count; i++) {
+            aabbMin.set(mins[i * 3], mins[i * 3 + 1], mins[i * 3 + 2]);
+            aabbMax.set(maxs[i * 3], maxs[i * 3 + 1], maxs[i * 3 + 2]);
+            setAabb(proxies[i], aabbMin, aabbMax);
+        }
+    }
+
+    public void rayTest(Vector3 rayFrom, Vector3 rayTo, BroadPhaseRayCallback rayCallback) {
+        var zero = new Vector3();
+        rayTest(rayFrom, rayTo, rayCallback, zero, zero);
+    }
+
+    public abstract void rayTest(Vector3 rayFrom, Vector3 rayTo, BroadPhaseRayCallback rayCallback, Vector3 aabbMin, Vector3 aabbMax);
+
+    public abstract void aabbTest(Vector3 aabbMin, Vector3 aabbMax, BroadPhaseAabbCallback callback);
+
     public abstract void calculateOverlappingPairs(Dispatcher dispatcher);
 
     public abstract OverlappingPairCache getOverlappingPairCache();
@@ -5,6 +5,7 @@ public class BroadPhasePair {
     public BroadPhaseProxy pProxy1;
     public CollisionAlgorithm algorithm;
     public Object userInfo;
+    public int index = -1;
 
     public BroadPhasePair(BroadPhaseProxy pProxy0, BroadPhaseProxy pProxy1) {
         this.pProxy0 = pProxy0;
@@ -0,0 +1,5 @@
+package com.bulletphysics.collision.broadphase;
+
+public abstract class BroadPhaseRayCallback extends BroadPhaseAabbCallback {
+    public float lambdaMax = 1f;
+}
@@ -0,0 +1,7 @@
+package com.bulletphysics.collision.broadphase;
+
+public enum BroadphaseNativeType {
+    BOX_SHAPE_PROXYTYPE,
+    SPHERE_SHAPE_PROXYTYPE,
+    CONVEX_SHAPE_PROXYTYPE
+}
@@ -1,5 +1,6 @@
 package com.bulletphysics.collision.broadphase;
 
+import com.bulletphysics.collision.dispatch.CollisionAlgorithmCreateFunc;
 import com.bulletphysics.collision.dispatch.CollisionObject;
 import com.bulletphysics.collision.dispatch.ManifoldResult;
 import com.bulletphysics.collision.narrowphase.PersistentManifold;
@@ -8,6 +9,7 @@ import java.util.List;
 
 public abstract class CollisionAlgorithm {
     protected Dispatcher dispatcher;
+    private CollisionAlgorithmCreateFunc createFunc;
 
     public void init(CollisionAlgorithmConstructionInfo ci) {
         dispatcher = ci.dispatcher1;
@@ -15,6 +17,17 @@ public abstract class CollisionAlgorithm {
 
     public abstract void destroy();
 
+    public CollisionAlgorithmCreateFunc internalGetCreateFunc() {
+        return createFunc;
+    }
+
+    public void internalSetCreateFunc(CollisionAlgorithmCreateFunc createFunc) {
+        this.createFunc = createFunc;
+    }
+
+    public void prepareCollision(CollisionObject body0, CollisionObject body1) {
+    }
+
     public abstract void processCollision(CollisionObject body0, CollisionObject body1, ManifoldResult resultOut);
 
     public abstract void getAllContactManifolds(List<PersistentManifold> manifoldArray);
@@ -1,16 +1,36 @@
 package com.bulletphysics.collision.broadphase;
 
+import com.bulletphysics.AabbUtil2;
 import com.bulletphysics.ArrayList;
+import com.bulletphysics.TaskScheduler;
 
 import javax.vecmath.Vector3;
+import java.util.Arrays;
 
 public class Dbvt {
     public static final int SIMPLE_STACKSIZE = 64;
     public static final int DOUBLE_STACKSIZE = SIMPLE_STACKSIZE * 2;
+    public static final int DEFAULT_MAX_FREE_NODES = 4096;
+    public static final int DEFAULT_BU_TRESHOLD = 16;
     public Node root = null;
-    public Node free = null;
     public int leaves = 0;
     public int opath = 0;
+    public static final int DEFAULT_PARALLEL_TASKS = 64;
+    private final NodePairStack pairStack = new NodePairStack();
+    private NodePairStack[] taskStacks = new NodePairStack[0];
+    private Node[] seedA = new Node[DEFAULT_PARALLEL_TASKS];
+    private Node[] seedB = new Node[DEFAULT_PARALLEL_TASKS];
+    private Node[] nextA = new Node[DEFAULT_PARALLEL_TASKS];
+    private Node[] nextB = new Node[DEFAULT_PARALLEL_TASKS];
+    private Node[] freeNodes = new Node[SIMPLE_STACKSIZE];
+    private int freeCount = 0;
+    private int maxFreeNodes = DEFAULT_MAX_FREE_NODES;
+    private int poolHits = 0;
+    private int poolMisses = 0;
+    private final Node[] rootRef = new Node[1];
+    private long nextSerial;
+    private Node[] leafBuffer = new Node[SIMPLE_STACKSIZE];
+    private final Vector3 tmp = new Vector3();
 
     public Dbvt() {
     }
@@ -20,7 +40,7 @@ public class Dbvt {
             passes = leaves;
         }
         if (root != null && passes > 0) {
-            var root_ref = new Node[1];
+            var root_ref = rootRef;
             do {
                 var node = root;
                 var bit = 0;
@@ -36,6 +56,19 @@ public class Dbvt {
         }
     }
 
+    public void optimizeTopDown() {
+        optimizeTopDown(DEFAULT_BU_TRESHOLD);
+    }
+
+    public void optimizeTopDown(int bu_treshold) {
+        if (root != null) {
+            var count = fetchleaves(this, root);
+            root = topdown(this, leafBuffer, 0, count, Math.max(bu_treshold, 1));
+            root.parent = null;
+            Arrays.fill(leafBuffer, 0, count, null);
+        }
+    }
+
     public Node insert(DbvtAabbMm box, Object data) {
         var leaf = createnode(this, null, box, data);
         insertleaf(this, root, leaf);
@@ -74,7 +107,6 @@ public class Dbvt {
         if (leaf.volume.Contain(volume)) {
             return false;
         }
-        var tmp = new Vector3();
         tmp.set(margin, margin, margin);
         volume.Expand(tmp);
         volume.SignedExpand(velocity);
@@ -124,34 +156,391 @@ public class Dbvt {
         }
     }
 
-    private static int indexof(Node node) {
-        return node.parent.childs[1] == node ? 1 : 0;
+    public static void collideTV(Node root, DbvtAabbMm volume, IVolumeCollide policy) {
+        if (root != null) {
+            var stack = policy.stack;
+            var depth = 1;
+            stack[0] = root;
+            do {
+                var node = stack[--depth];
+                if (DbvtAabbMm.Intersect(node.volume, volume)) {
+                    if (node.isinternal()) {
+                        if (depth + 2 > stack.length) {
+                            stack = Arrays.copyOf(stack, stack.length << 1);
+                            policy.stack = stack;
+                        }
+                        stack[depth++] = node.childs[0];
+                        stack[depth++] = node.childs[1];
+                    } else {
+                        policy.Process(node);
+                    }
+                }
+            } while (depth > 0);
+        }
+    }
+
+    public static void rayTest(Node root, Vector3 rayFrom, Vector3 rayTo, Vector3 aabbMin, Vector3 aabbMax, IRayCollide policy) {
+        if (root != null) {
+            var delta = policy.rayDelta.set(rayTo).sub(rayFrom);
+            var stack = policy.stack;
+            var depth = 1;
+            stack[0] = root;
+            do {
+                var node = stack[--depth];
+                var mi = node.volume.Mins();
+                var mx = node.volume.Maxs();
+                if (AabbUtil2.rayAabb2(rayFrom, delta, mi.x - aabbMax.x, mi.y - aabbMax.y, mi.z - aabbMax.z, mx.x - aabbMin.x, mx.y - aabbMin.y, mx.z - aabbMin.z, policy.lambdaMax)) {
+                    if (node.isinternal()) {
+                        if (depth + 2 > stack.length) {
+                            stack = Arrays.copyOf(stack, stack.length << 1);
+                            policy.stack = stack;
+                        }
+                        stack[depth++] = node.childs[0];
+                        stack[depth++] = node.childs[1];
+                    } else {
+                        policy.Process(node);
+                    }
+                }
+            } while (depth > 0);
+        }
+    }
+
+    public void collideTTpersistentStack(Node root0, Node root1, ICollide policy) {
+        collideTT(root0, root1, policy, pairStack);
+    }
+
+    public void collideTTparallel(Node root0, Node root1, ICollide[] policies, TaskScheduler scheduler) {
+        var tasks = policies.length;
+        if (root0 == null || root1 == null || tasks == 0) {
+            return;
+        }
+        var seeds = expandSeeds(root0, root1, tasks);
+        if (taskStacks.length < tasks) {
+            var newStacks = new NodePairStack[tasks];
+            System.arraycopy(taskStacks, 0, newStacks, 0, taskStacks.length);
+            for (var i = taskStacks.length; i < tasks; i++) {
+                newStacks[i] = new NodePairStack();
+            }
+            taskStacks = newStacks;
+        }
+        var sa = seedA;
+        var sb = seedB;
+        var stacks = taskStacks;
+        scheduler.parallelFor(tasks, task -> {
+            var from = (int) ((long) seeds * task / tasks);
+            var to = (int) ((long) seeds * (task + 1) / tasks);
+            for (var i = from; i < to; i++) {
+                collideTT(sa[i], sb[i], policies[task], stacks[task]);
+            }
+        });
+    }
+
+    private int expandSeeds(Node root0, Node root1, int target) {
+        var count = 1;
+        seedA[0] = root0;
+        seedB[0] = root1;
+        var expanded = true;
+        while (expanded && count < target) {
+            expanded = false;
+            if (nextA.length < count * 4) {
+                nextA = new Node[count * 4];
+                nextB = new Node[count * 4];
+            }
+            var next = 0;
+            for (var i = 0; i < count; i++) {
+                var a = seedA[i];
+                var b = seedB[i];
+                if (a == b) {
+                    if (a.isinternal()) {
+                        next = pushSeed(next, a.childs[0], a.childs[0]);
+                        next = pushSeed(next, a.childs[1], a.childs[1]);
+                        next = pushSeed(next, a.childs[0], a.childs[1]);
+                        expanded = true;
+                    }
+                } else if (DbvtAabbMm.Intersect(a.volume, b.volume)) {
+                    if (a.isinternal()) {
+                        if (b.isinternal()) {
+                            next = pushSeed(next, a.childs[0], b.childs[0]);
+                            next = pushSeed(next, a.childs[1], b.childs[0]);
+                            next = pushSeed(next, a.childs[0], b.childs[1]);
+                            next = pushSeed(next, a.childs[1], b.childs[1]);
+                        } else {
+                            next = pushSeed(next, a.childs[0], b);
+                            next = pushSeed(next, a.childs[1], b);
+                        }
+                        expanded = true;
+                    } else if (b.isinternal()) {
+                        next = pushSeed(next, a, b.childs[0]);
+                        next = pushSeed(next, a, b.childs[1]);
+                        expanded = true;
+                    } else {
+                        next = pushSeed(next, a, b);
+                    }
+                }
+            }
+            var ta = seedA;
+            var tb = seedB;
+            seedA = nextA;
+            seedB = nextB;
+            nextA = ta;
+            nextB = tb;
+            count = next;
+        }
+        return count;
+    }
+
+    private int pushSeed(int count, Node a, Node b) {
+        nextA[count] = a;
+        nextB[count] = b;
+        return count + 1;
+    }
+
+    private static void collideTT(Node root0, Node root1, ICollide policy, NodePairStack stack) {
+        if (root0 != null && root1 != null) {
+            var depth = 1;
+            var treshold = stack.a.length - 4;
+            stack.a[0] = root0;
+            stack.b[0] = root1;
+            do {
+                --depth;
+                var a = stack.a[depth];
+                var b = stack.b[depth];
+                if (depth > treshold) {
+                    stack.grow();
+                    treshold = stack.a.length - 4;
+                }
+                if (a == b) {
+                    if (a.isinternal()) {
+                        depth = stack.push(depth, a.childs[0], a.childs[0]);
+                        depth = stack.push(depth, a.childs[1], a.childs[1]);
+                        depth = stack.push(depth, a.childs[0], a.childs[1]);
+                    }
+                } else if (DbvtAabbMm.Intersect(a.volume, b.volume)) {
+                    if (a.isinternal()) {
+                        if (b.isinternal()) {
+                            depth = stack.push(depth, a.childs[0], b.childs[0]);
+                            depth = stack.push(depth, a.childs[1], b.childs[0]);
+                            depth = stack.push(depth, a.childs[0], b.childs[1]);
+                            depth = stack.push(depth, a.childs[1], b.childs[1]);
+                        } else {
+                            depth = stack.push(depth, a.childs[0], b);
+                            depth = stack.push(depth, a.childs[1], b);
+                        }
+                    } else {
+                        if (b.isinternal()) {
+                            depth = stack.push(depth, a, b.childs[0]);
+                            depth = stack.push(depth, a, b.childs[1]);
+                        } else {
+                            policy.Process(a, b);
+                        }
+                    }
+                }
+            } while (depth > 0);
+        }
+    }
+
+    public int getStackAllocations() {
+        var allocations = pairStack.allocations;
+        for (var stack : taskStacks) {
+            allocations += stack.allocations;
+        }
+        return allocations;
+    }
+
+    public int getMaxFreeNodes() {
+        return maxFreeNodes;
     }
 
-    private static DbvtAabbMm merge(DbvtAabbMm a, DbvtAabbMm b, DbvtAabbMm out) {
-        DbvtAabbMm.Merge(a, b, out);
-        return out;
+    public void setMaxFreeNodes(int maxFreeNodes) {
+        this.maxFreeNodes = Math.max(0, maxFreeNodes);
+        trimFreeNodes(this.maxFreeNodes);
+    }
+
+    public void trimFreeNodes(int count) {
+        while (freeCount > count) {
+            freeNodes[--freeCount] = null;
+        }
+    }
+
+    public int getFreeNodeCount() {
+        return freeCount;
+    }
+
+    public int getPoolHits() {
+        return poolHits;
+    }
+
+    public int getPoolMisses() {
+        return poolMisses;
+    }
+
+    private static int indexof(Node node) {
+        return node.parent.childs[1] == node ? 1 : 0;
     }
 
     private static void deletenode(Dbvt pdbvt, Node node) {
-        pdbvt.free = node;
+        node.parent = null;
+        node.childs[0] = null;
+        node.childs[1] = null;
+        node.data = null;
+        if (pdbvt.freeCount < pdbvt.maxFreeNodes) {
+            if (pdbvt.freeCount == pdbvt.freeNodes.length) {
+                var newFree = new Node[Math.min(pdbvt.freeNodes.length << 1, pdbvt.maxFreeNodes)];
+                System.arraycopy(pdbvt.freeNodes, 0, newFree, 0, pdbvt.freeCount);
+                pdbvt.freeNodes = newFree;
+            }
+            pdbvt.freeNodes[pdbvt.freeCount++] = node;
+        }
     }
 
     private static Node createnode(Dbvt pdbvt, Node parent, DbvtAabbMm volume, Object data) {
         Node node;
-        if (pdbvt.free != null) {
-            node = pdbvt.free;
-            pdbvt.free = null;
+        if (pdbvt.freeCount > 0) {
+            node = pdbvt.freeNodes[--pdbvt.freeCount];
+            pdbvt.freeNodes[pdbvt.freeCount] = null;
+            pdbvt.poolHits++;
         } else {
             node = new Node();
+            pdbvt.poolMisses++;
         }
+        node.serial = pdbvt.nextSerial++;
         node.parent = parent;
-        node.volume.set(volume);
+        if (volume != null) {
+            node.volume.set(volume);
+        }
         node.data = data;
         node.childs[1] = null;
         return node;
     }
 
+    private static int fetchleaves(Dbvt pdbvt, Node root) {
+        if (pdbvt.leafBuffer.length < pdbvt.leaves) {
+            pdbvt.leafBuffer = new Node[pdbvt.leaves];
+        }
+        var count = 0;
+        var depth = 1;
+        var stack = pdbvt.pairStack;
+        stack.a[0] = root;
+        do {
+            var node = stack.a[--depth];
+            if (node.isinternal()) {
+                if (depth + 2 > stack.a.length) {
+                    stack.grow();
+                }
+                stack.a[depth++] = node.childs[0];
+                stack.a[depth++] = node.childs[1];
+                deletenode(pdbvt, node);
+            } else {
+                if (count == pdbvt.leafBuffer.length) {
+                    var newBuffer = new Node[count << 1];
+                    System.arraycopy(pdbvt.leafBuffer, 0, newBuffer, 0, count);
+                    pdbvt.leafBuffer = newBuffer;
+                }
+                pdbvt.leafBuffer[count++] = node;
+            }
+        } while (depth > 0);
+        return count;
+    }
+
+    private static Node topdown(Dbvt pdbvt, Node[] leaves, int lo, int hi, int bu_treshold) {
+        var count = hi - lo;
+        if (count > 1) {
+            if (count > bu_treshold) {
+                var node = createnode(pdbvt, null, leaves[lo].volume, null);
+                for (var i = lo + 1; i < hi; i++) {
+                    DbvtAabbMm.Merge(node.volume, leaves[i].volume, node.volume);
+                }
+                var mi = node.volume.Mins();
+                var mx = node.volume.Maxs();
+                var bestaxis = -1;
+                var bestmidp = count;
+                for (var axis = 0; axis < 3; axis++) {
+                    var org = mi.getCoord(axis) + mx.getCoord(axis);
+                    var left = 0;
+                    for (var i = lo; i < hi; i++) {
+                        if (center2(leaves[i].volume, axis) < org) {
+                            left++;
+                        }
+                    }
+                    var right = count - left;
+                    if (left > 0 && right > 0) {
+                        var midp = Math.abs(left - right);
+                        if (midp < bestmidp) {
+                            bestaxis = axis;
+                            bestmidp = midp;
+                        }
+                    }
+                }
+                int mid;
+                if (bestaxis >= 0) {
+                    var org = mi.getCoord(bestaxis) + mx.getCoord(bestaxis);
+                    var i = lo;
+                    var j = hi - 1;
+                    while (i <= j) {
+                        if (center2(leaves[i].volume, bestaxis) < org) {
+                            i++;
+                        } else {
+                            var t = leaves[i];
+                            leaves[i] = leaves[j];
+                            leaves[j--] = t;
+                        }
+                    }
+                    mid = i;
+                } else {
+                    mid = lo + (count >> 1);
+                }
+                node.childs[0] = topdown(pdbvt, leaves, lo, mid, bu_treshold);
+                node.childs[1] = topdown(pdbvt, leaves, mid, hi, bu_treshold);
+                node.childs[0].parent = node;
+                node.childs[1].parent = node;
+                return node;
+            } else {
+                bottomup(pdbvt, leaves, lo, hi);
+            }
+        }
+        return leaves[lo];
+    }
+
+    private static void bottomup(Dbvt pdbvt, Node[] leaves, int lo, int hi) {
+        while (hi - lo > 1) {
+            var minsize = Float.POSITIVE_INFINITY;
+            var minidx0 = -1;
+            var minidx1 = -1;
+            for (var i = lo; i < hi; i++) {
+                for (var j = i + 1; j < hi; j++) {
+                    var sz = mergedSize(leaves[i].volume, leaves[j].volume);
+                    if (sz < minsize) {
+                        minsize = sz;
+                        minidx0 = i;
+                        minidx1 = j;
+                    }
+                }
+            }
+            var n0 = leaves[minidx0];
+            var n1 = leaves[minidx1];
+            var p = createnode(pdbvt, null, null, null);
+            DbvtAabbMm.Merge(n0.volume, n1.volume, p.volume);
+            p.childs[0] = n0;
+            p.childs[1] = n1;
+            n0.parent = p;
+            n1.parent = p;
+            leaves[minidx0] = p;
+            leaves[minidx1] = leaves[--hi];
+            leaves[hi] = null;
+        }
+    }
+
+    private static float center2(DbvtAabbMm volume, int axis) {
+        return volume.Mins().getCoord(axis) + volume.Maxs().getCoord(axis);
+    }
+
+    private static float mergedSize(DbvtAabbMm a, DbvtAabbMm b) {
+        var ex = Math.max(a.Maxs().x, b.Maxs().x) - Math.min(a.Mins().x, b.Mins().x);
+        var ey = Math.max(a.Maxs().y, b.Maxs().y) - Math.min(a.Mins().y, b.Mins().y);
+        var ez = Math.max(a.Maxs().z, b.Maxs().z) - Math.min(a.Mins().z, b.Mins().z);
+        return ex * ey * ez + ex + ey + ez;
+    }
+
     private static void insertleaf(Dbvt pdbvt, Node root, Node leaf) {
         if (pdbvt.root == null) {
             pdbvt.root = leaf;
@@ -167,7 +556,8 @@ public class Dbvt {
                 } while (root.isleaf());
             }
             var prev = root.parent;
-            var node = createnode(pdbvt, prev, merge(leaf.volume, root.volume, new DbvtAabbMm()), null);
+            var node = createnode(pdbvt, prev, null, null);
+            DbvtAabbMm.Merge(leaf.volume, root.volume, node.volume);
             if (prev != null) {
                 prev.childs[indexof(root)] = node;
                 node.childs[0] = root;
@@ -226,7 +616,7 @@ public class Dbvt {
     private static Node sort(Node n, Node[] r) {
         var p = n.parent;
 
-        if (p != null && p.hashCode() > n.hashCode()) {
+        if (p != null && p.serial > n.serial) {
             var i = indexof(n);
             var j = 1 - i;
             var s = p.childs[j];
@@ -257,6 +647,7 @@ public class Dbvt {
         public Node parent;
         public final Node[] childs = new Node[2];
         public Object data;
+        public long serial;
 
         public boolean isleaf() {
             return childs[1] != null;
@@ -277,8 +668,45 @@ public class Dbvt {
         }
     }
 
+    private static class NodePairStack {
+        public Node[] a = new Node[DOUBLE_STACKSIZE];
+        public Node[] b = new Node[DOUBLE_STACKSIZE];
+        public int allocations = 0;
+
+        public int push(int depth, Node na, Node nb) {
+            a[depth] = na;
+            b[depth] = nb;
+            return depth + 1;
+        }
+
+        public void grow() {
+            var size = a.length << 1;
+            var na = new Node[size];
+            var nb = new Node[size];
+            System.arraycopy(a, 0, na, 0, a.length);
+            System.arraycopy(b, 0, nb, 0, b.length);
+            a = na;
+            b = nb;
+            allocations++;
+        }
+    }
+
     public static class ICollide {
         public void Process(Node n1, Node n2) {
         }
+
+        public void Process(Node n) {
+        }
+    }
+
+    public static class IVolumeCollide extends ICollide {
+        public final DbvtAabbMm volume = new DbvtAabbMm();
+        public Node[] stack = new Node[SIMPLE_STACKSIZE];
+    }
+
+    public static class IRayCollide extends ICollide {
+        public float lambdaMax = 1f;
+        public final Vector3 rayDelta = new Vector3();
+        public Node[] stack = new Node[SIMPLE_STACKSIZE];
     }
 }
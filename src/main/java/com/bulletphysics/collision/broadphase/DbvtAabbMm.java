@@ -24,6 +24,14 @@ public class DbvtAabbMm {
         p2.mx.set(tmp);
     }
 
+    public Vector3 Mins() {
+        return mi;
+    }
+
+    public Vector3 Maxs() {
+        return mx;
+    }
+
     public Vector3 Center(Vector3 out) {
         return out.set(mi).add(mx).mul(0.5f);
     }
@@ -66,12 +74,10 @@ public class DbvtAabbMm {
     }
 
     public static float Proximity(DbvtAabbMm a, DbvtAabbMm b) {
-        var d = new Vector3();
-        var tmp = new Vector3();
-        d.set(a.mi).add(a.mx);
-        tmp.set(b.mi).add(b.mx);
-        d.sub(tmp);
-        return Math.abs(d.x) + Math.abs(d.y) + Math.abs(d.z);
+        var dx = a.mi.x + a.mx.x - (b.mi.x + b.mx.x);
+        var dy = a.mi.y + a.mx.y - (b.mi.y + b.mx.y);
+        var dz = a.mi.z + a.mx.z - (b.mi.z + b.mx.z);
+        return Math.abs(dx) + Math.abs(dy) + Math.abs(dz);
     }
 
     public static void Merge(DbvtAabbMm a, DbvtAabbMm b, DbvtAabbMm r) {
@@ -1,11 +1,16 @@
 package com.bulletphysics.collision.broadphase;
 
+import com.bulletphysics.TaskScheduler;
+
 import javax.vecmath.Vector3;
 
 public class DbvtBroadPhase extends BroadPhaseInterface {
     public static final float DBVT_BP_MARGIN = 0.05f;
     public static final int STAGECOUNT = 2;
+    public static final int DEFAULT_BULK_BUILD_THRESHOLD = 256;
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1024;
     public final Dbvt[] sets = new Dbvt[2];
+    public final FlatDbvt[] flatSets = new FlatDbvt[2];
     public final DbvtProxy[] stageRoots = new DbvtProxy[STAGECOUNT + 1];
     public final OverlappingPairCache paircache;
     public final float predictedframes;
@@ -15,14 +20,39 @@ public class DbvtBroadPhase extends BroadPhaseInterface {
     public int pid;
     public int gid;
     public final boolean releasepaircache;
+    public final boolean flatStorage;
+    public int bulkBuildThreshold = DEFAULT_BULK_BUILD_THRESHOLD;
+    public int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private final int[] insertsSinceBuild = new int[2];
+    private TaskScheduler scheduler = null;
+    private DbvtPairCollector[] collectors = new DbvtPairCollector[0];
+    private final DbvtTreeCollider collider = new DbvtTreeCollider(this);
+    private final FlatDbvtTreeCollider flatCollider = new FlatDbvtTreeCollider(this);
+    private final StalePairCallback stalePairCallback = new StalePairCallback();
+    private final DbvtAabbMm tmpAabb = new DbvtAabbMm();
+    private final Vector3 tmpMin = new Vector3();
+    private final Vector3 tmpMax = new Vector3();
+    private final Vector3 tmpDelta = new Vector3();
+    private final Vector3 tmpCenter = new Vector3();
+    private final ThreadLocal<RayTester> rayTesters = ThreadLocal.withInitial(RayTester::new);
+    private final ThreadLocal<FlatRayTester> flatRayTesters = ThreadLocal.withInitial(FlatRayTester::new);
+    private final ThreadLocal<AabbTester> aabbTesters = ThreadLocal.withInitial(AabbTester::new);
+    private final ThreadLocal<FlatAabbTester> flatAabbTesters = ThreadLocal.withInitial(FlatAabbTester::new);
 
     public DbvtBroadPhase() {
         this(null);
     }
 
     public DbvtBroadPhase(OverlappingPairCache paircache) {
+        this(paircache, false);
+    }
+
+    public DbvtBroadPhase(OverlappingPairCache paircache, boolean flatStorage) {
+        this.flatStorage = flatStorage;
         sets[0] = new Dbvt();
         sets[1] = new Dbvt();
+        flatSets[0] = new FlatDbvt();
+        flatSets[1] = new FlatDbvt();
         releasepaircache = paircache == null;
         predictedframes = 2;
         stageCurrent = 0;
@@ -37,47 +67,93 @@ public class DbvtBroadPhase extends BroadPhaseInterface {
     }
 
     public void collide(Dispatcher dispatcher) {
-        sets[0].optimizeIncremental(1 + sets[0].leaves * dupdates / 100);
-        sets[1].optimizeIncremental(1 + sets[1].leaves * fupdates / 100);
+        optimizeTopDownIfNeeded(0);
+        if (flatStorage) {
+            flatSets[0].optimizeIncremental(1 + flatSets[0].leaves * dupdates / 100);
+            flatSets[1].optimizeIncremental(1 + flatSets[1].leaves * fupdates / 100);
+        } else {
+            sets[0].optimizeIncremental(1 + sets[0].leaves * dupdates / 100);
+            sets[1].optimizeIncremental(1 + sets[1].leaves * fupdates / 100);
+        }
         stageCurrent = (stageCurrent + 1) % STAGECOUNT;
         var current = stageRoots[stageCurrent];
         if (current != null) {
-            var collider = new DbvtTreeCollider(this);
             do {
                 var next = current.links[1];
                 stageRoots[current.stage] = listremove(current, stageRoots[current.stage]);
                 stageRoots[STAGECOUNT] = listappend(current, stageRoots[STAGECOUNT]);
-                Dbvt.collideTT(sets[1].root, current.leaf, collider);
-                sets[0].remove(current.leaf);
-                current.leaf = sets[1].insert(current.aabb, current);
+                if (flatStorage) {
+                    flatSets[1].collideTT(flatSets[1].root, flatSets[0], current.leafId, flatCollider);
+                    flatSets[0].remove(current.leafId);
+                    current.leafId = flatSets[1].insert(current.aabb, current);
+                } else {
+                    sets[1].collideTTpersistentStack(sets[1].root, current.leaf, collider);
+                    sets[0].remove(current.leaf);
+                    current.leaf = sets[1].insert(current.aabb, current);
+                }
+                insertsSinceBuild[1]++;
                 current.stage = STAGECOUNT;
                 current = next;
             } while (current != null);
+            optimizeTopDownIfNeeded(1);
         }
-        var collider = new DbvtTreeCollider(this);
-        Dbvt.collideTT(sets[0].root, sets[1].root, collider);
-        Dbvt.collideTT(sets[0].root, sets[0].root, collider);
-        var pairs = paircache.getOverlappingPairArray();
-        if (pairs.size() > 0) {
-            for (int i = 0, ni = pairs.size(); i < ni; i++) {
-                var p = pairs.get(i);
-                var pa = (DbvtProxy) p.pProxy0;
-                var pb = (DbvtProxy) p.pProxy1;
-                if (!DbvtAabbMm.Intersect(pa.aabb, pb.aabb)) {
-                    if (pa.hashCode() > pb.hashCode()) {
-                        var tmp = pa;
-                        pa = pb;
-                        pb = tmp;
-                    }
-                    paircache.removeOverlappingPair(pa, pb, dispatcher);
-                    ni--;
-                    i--;
-                }
-            }
+        if (flatStorage) {
+            flatSets[0].collideTT(flatSets[0].root, flatSets[1], flatSets[1].root, flatCollider);
+            flatSets[0].collideTT(flatSets[0].root, flatSets[0], flatSets[0].root, flatCollider);
+        } else if (scheduler != null && sets[0].leaves + sets[1].leaves >= parallelThreshold) {
+            collideParallel(sets[0].root, sets[1].root);
+            collideParallel(sets[0].root, sets[0].root);
+        } else {
+            sets[0].collideTTpersistentStack(sets[0].root, sets[1].root, collider);
+            sets[0].collideTTpersistentStack(sets[0].root, sets[0].root, collider);
         }
+        paircache.removeOverlappingPairs(stalePairCallback, dispatcher);
         pid++;
     }
 
+    private void collideParallel(Dbvt.Node root0, Dbvt.Node root1) {
+        sets[0].collideTTparallel(root0, root1, collectors, scheduler);
+        for (var c : collectors) {
+            c.flush(paircache);
+        }
+    }
+
+    public TaskScheduler getTaskScheduler() {
+        return scheduler;
+    }
+
+    public void setTaskScheduler(TaskScheduler scheduler) {
+        this.scheduler = scheduler;
+        var tasks = scheduler != null ? Dbvt.DEFAULT_PARALLEL_TASKS : 0;
+        collectors = new DbvtPairCollector[tasks];
+        for (var i = 0; i < tasks; i++) {
+            collectors[i] = new DbvtPairCollector();
+        }
+    }
+
+    public void optimizeTopDown() {
+        for (var i = 0; i < 2; i++) {
+            if (flatStorage) {
+                flatSets[i].optimizeTopDown();
+            } else {
+                sets[i].optimizeTopDown();
+            }
+            insertsSinceBuild[i] = 0;
+        }
+    }
+
+    private void optimizeTopDownIfNeeded(int set) {
+        var leaves = flatStorage ? flatSets[set].leaves : sets[set].leaves;
+        if (bulkBuildThreshold > 0 && insertsSinceBuild[set] >= bulkBuildThreshold && insertsSinceBuild[set] * 2 >= leaves) {
+            if (flatStorage) {
+                flatSets[set].optimizeTopDown();
+            } else {
+                sets[set].optimizeTopDown();
+            }
+            insertsSinceBuild[set] = 0;
+        }
+    }
+
     private static DbvtProxy listappend(DbvtProxy item, DbvtProxy list) {
         item.links[0] = null;
         item.links[1] = list;
@@ -103,7 +179,12 @@ public class DbvtBroadPhase extends BroadPhaseInterface {
     public BroadPhaseProxy createProxy(Vector3 aabbMin, Vector3 aabbMax, Object userPtr, short collisionFilterGroup, short collisionFilterMask) {
         var proxy = new DbvtProxy(userPtr, collisionFilterGroup, collisionFilterMask);
         DbvtAabbMm.FromMM(aabbMin, aabbMax, proxy.aabb);
-        proxy.leaf = sets[0].insert(proxy.aabb, proxy);
+        if (flatStorage) {
+            proxy.leafId = flatSets[0].insert(proxy.aabb, proxy);
+        } else {
+            proxy.leaf = sets[0].insert(proxy.aabb, proxy);
+        }
+        insertsSinceBuild[0]++;
         proxy.stage = stageCurrent;
         proxy.uniqueId = ++gid;
         stageRoots[stageCurrent] = listappend(proxy, stageRoots[stageCurrent]);
@@ -111,19 +192,31 @@ public class DbvtBroadPhase extends BroadPhaseInterface {
     }
 
     public void setAabb(BroadPhaseProxy absproxy, Vector3 aabbMin, Vector3 aabbMax) {
-        var proxy = (DbvtProxy) absproxy;
-        var aabb = DbvtAabbMm.FromMM(aabbMin, aabbMax, new DbvtAabbMm());
-        if (proxy.stage == STAGECOUNT) {
+        updateProxy((DbvtProxy) absproxy, aabbMin, aabbMax);
+    }
+
+    @Override
+    public void setAabbs(BroadPhaseProxy[] proxies, float[] mins, float[] maxs, int count) {
+        var aabbMin = tmpMin;
+        var aabbMax = tmpMax;
+        for (var i = 0; i < count; i++) {
+            aabbMin.set(mins[i * 3], mins[i * 3 + 1], mins[i * 3 + 2]);
+            aabbMax.set(maxs[i * 3], maxs[i * 3 + 1], maxs[i * 3 + 2]);
+            updateProxy((DbvtProxy) proxies[i], aabbMin, aabbMax);
+        }
+    }
+
+    private void updateProxy(DbvtProxy proxy, Vector3 aabbMin, Vector3 aabbMax) {
+        var aabb = DbvtAabbMm.FromMM(aabbMin, aabbMax, tmpAabb);
+        if (flatStorage) {
+            setFlatAabb(proxy, aabb, aabbMin, aabbMax);
+        } else if (proxy.stage == STAGECOUNT) {
             sets[1].remove(proxy.leaf);
             proxy.leaf = sets[0].insert(aabb, proxy);
+            insertsSinceBuild[0]++;
         } else {
             if (DbvtAabbMm.Intersect(proxy.leaf.volume, aabb)) {
-                var delta = new Vector3();
-                delta.set(aabbMin).add(aabbMax);
-                delta.mul(0.5f);
-                delta.sub(proxy.aabb.Center(new Vector3()));
-                delta.mul(predictedframes);
-                sets[0].update(proxy.leaf, aabb, delta, DBVT_BP_MARGIN);
+                sets[0].update(proxy.leaf, aabb, predictedDelta(proxy, aabbMin, aabbMax), DBVT_BP_MARGIN);
             } else {
                 sets[0].update(proxy.leaf, aabb);
             }
@@ -134,6 +227,63 @@ public class DbvtBroadPhase extends BroadPhaseInterface {
         stageRoots[stageCurrent] = listappend(proxy, stageRoots[stageCurrent]);
     }
 
+    private void setFlatAabb(DbvtProxy proxy, DbvtAabbMm aabb, Vector3 aabbMin, Vector3 aabbMax) {
+        if (proxy.stage == STAGECOUNT) {
+            flatSets[1].remove(proxy.leafId);
+            proxy.leafId = flatSets[0].insert(aabb, proxy);
+            insertsSinceBuild[0]++;
+        } else {
+            if (flatSets[0].intersects(proxy.leafId, aabb)) {
+                flatSets[0].update(proxy.leafId, aabb, predictedDelta(proxy, aabbMin, aabbMax), DBVT_BP_MARGIN);
+            } else {
+                flatSets[0].update(proxy.leafId, aabb);
+            }
+        }
+    }
+
+    private Vector3 predictedDelta(DbvtProxy proxy, Vector3 aabbMin, Vector3 aabbMax) {
+        var delta = tmpDelta;
+        delta.set(aabbMin).add(aabbMax);
+        delta.mul(0.5f);
+        delta.sub(proxy.aabb.Center(tmpCenter));
+        delta.mul(predictedframes);
+        return delta;
+    }
+
+    public void rayTest(Vector3 rayFrom, Vector3 rayTo, BroadPhaseRayCallback rayCallback, Vector3 aabbMin, Vector3 aabbMax) {
+        if (flatStorage) {
+            var tester = flatRayTesters.get();
+            tester.init(rayCallback);
+            flatSets[0].rayTest(flatSets[0].root, rayFrom, rayTo, aabbMin, aabbMax, tester);
+            flatSets[1].rayTest(flatSets[1].root, rayFrom, rayTo, aabbMin, aabbMax, tester);
+            tester.rayCallback = null;
+        } else {
+            var tester = rayTesters.get();
+            tester.init(rayCallback);
+            Dbvt.rayTest(sets[0].root, rayFrom, rayTo, aabbMin, aabbMax, tester);
+            Dbvt.rayTest(sets[1].root, rayFrom, rayTo, aabbMin, aabbMax, tester);
+            tester.rayCallback = null;
+        }
+    }
+
+    public void aabbTest(Vector3 aabbMin, Vector3 aabbMax, BroadPhaseAabbCallback callback) {
+        if (flatStorage) {
+            var tester = flatAabbTesters.get();
+            tester.callback = callback;
+            var bounds = DbvtAabbMm.FromMM(aabbMin, aabbMax, tester.volume);
+            flatSets[0].collideTV(flatSets[0].root, bounds, tester);
+            flatSets[1].collideTV(flatSets[1].root, bounds, tester);
+            tester.callback = null;
+        } else {
+            var tester = aabbTesters.get();
+            tester.callback = callback;
+            var bounds = DbvtAabbMm.FromMM(aabbMin, aabbMax, tester.volume);
+            Dbvt.collideTV(sets[0].root, bounds, tester);
+            Dbvt.collideTV(sets[1].root, bounds, tester);
+            tester.callback = null;
+        }
+    }
+
     public void calculateOverlappingPairs(Dispatcher dispatcher) {
         collide(dispatcher);
     }
@@ -141,4 +291,61 @@ public class DbvtBroadPhase extends BroadPhaseInterface {
     public OverlappingPairCache getOverlappingPairCache() {
         return paircache;
     }
+
+    private static class StalePairCallback extends OverlapCallback {
+        @Override
+        public boolean processOverlap(BroadPhasePair pair) {
+            var pa = (DbvtProxy) pair.pProxy0;
+            var pb = (DbvtProxy) pair.pProxy1;
+            return !DbvtAabbMm.Intersect(pa.aabb, pb.aabb);
+        }
+    }
+
+    private static class RayTester extends Dbvt.IRayCollide {
+        private BroadPhaseRayCallback rayCallback;
+
+        public void init(BroadPhaseRayCallback rayCallback) {
+            this.rayCallback = rayCallback;
+            lambdaMax = rayCallback.lambdaMax;
+        }
+
+        @Override
+        public void Process(Dbvt.Node leaf) {
+            rayCallback.process((DbvtProxy) leaf.data);
+            lambdaMax = rayCallback.lambdaMax;
+        }
+    }
+
+    private static class FlatRayTester extends FlatDbvt.IRayCollide {
+        private BroadPhaseRayCallback rayCallback;
+
+        public void init(BroadPhaseRayCallback rayCallback) {
+            this.rayCallback = rayCallback;
+            lambdaMax = rayCallback.lambdaMax;
+        }
+
+        @Override
+        public void Process(Object data) {
+            rayCallback.process((DbvtProxy) data);
+            lambdaMax = rayCallback.lambdaMax;
+        }
+    }
+
+    private static class AabbTester extends Dbvt.IVolumeCollide {
+        private BroadPhaseAabbCallback callback;
+
+        @Override
+        public void Process(Dbvt.Node leaf) {
+            callback.process((DbvtProxy) leaf.data);
+        }
+    }
+
+    private static class FlatAabbTester extends FlatDbvt.IVolumeCollide {
+        private BroadPhaseAabbCallback callback;
+
+        @Override
+        public void Process(Object data) {
+            callback.process((DbvtProxy) data);
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package com.bulletphysics.collision.broadphase;
+
+public class DbvtPairCollector extends Dbvt.ICollide {
+    public DbvtProxy[] proxies0 = new DbvtProxy[Dbvt.SIMPLE_STACKSIZE];
+    public DbvtProxy[] proxies1 = new DbvtProxy[Dbvt.SIMPLE_STACKSIZE];
+    public int count = 0;
+
+    @Override
+    public void Process(Dbvt.Node na, Dbvt.Node nb) {
+        var pa = (DbvtProxy) na.data;
+        var pb = (DbvtProxy) nb.data;
+        if (DbvtAabbMm.Intersect(pa.aabb, pb.aabb)) {
+            if (pa.getUid() > pb.getUid()) {
+                var tmp = pa;
+                pa = pb;
+                pb = tmp;
+            }
+            if (count == proxies0.length) {
+                var size = count << 1;
+                var n0 = new DbvtProxy[size];
+                var n1 = new DbvtProxy[size];
+                System.arraycopy(proxies0, 0, n0, 0, count);
+                System.arraycopy(proxies1, 0, n1, 0, count);
+                proxies0 = n0;
+                proxies1 = n1;
+            }
+            proxies0[count] = pa;
+            proxies1[count] = pb;
+            count++;
+        }
+    }
+
+    public void flush(OverlappingPairCache paircache) {
+        for (var i = 0; i < count; i++) {
+            paircache.addOverlappingPair(proxies0[i], proxies1[i]);
+            proxies0[i] = null;
+            proxies1[i] = null;
+        }
+        count = 0;
+    }
+}
@@ -3,6 +3,7 @@ package com.bulletphysics.collision.broadphase;
 public class DbvtProxy extends BroadPhaseProxy {
     public final DbvtAabbMm aabb = new DbvtAabbMm();
     public Dbvt.Node leaf;
+    public int leafId = FlatDbvt.NULL_NODE;
     public final DbvtProxy[] links = new DbvtProxy[2];
     public int stage;
 
@@ -12,7 +12,7 @@ public class DbvtTreeCollider extends Dbvt.ICollide {
         var pa = (DbvtProxy) na.data;
         var pb = (DbvtProxy) nb.data;
         if (DbvtAabbMm.Intersect(pa.aabb, pb.aabb)) {
-            if (pa.hashCode() > pb.hashCode()) {
+            if (pa.getUid() > pb.getUid()) {
                 var tmp = pa;
                 pa = pb;
                 pb = tmp;
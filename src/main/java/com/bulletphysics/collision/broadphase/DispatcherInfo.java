@@ -3,5 +3,7 @@ package com.bulletphysics.collision.broadphase;
 public class DispatcherInfo {
     public float timeStep;
     public int stepCount;
+    public boolean useSpeculativeContacts;
+    public boolean useGjkWarmStart;
     public final float allowedCcdPenetration = 0.04f;
 }
@@ -0,0 +1,625 @@
+package com.bulletphysics.collision.broadphase;
+
+import com.bulletphysics.AabbUtil2;
+
+import javax.vecmath.Vector3;
+import java.util.Arrays;
+
+public class FlatDbvt {
+    public static final int NULL_NODE = -1;
+    public static final int INITIAL_CAPACITY = 64;
+    private float[] bounds = new float[INITIAL_CAPACITY * 6];
+    private int[] parent = new int[INITIAL_CAPACITY];
+    private int[] child0 = new int[INITIAL_CAPACITY];
+    private int[] child1 = new int[INITIAL_CAPACITY];
+    private Object[] data = new Object[INITIAL_CAPACITY];
+    private int nodeCount = 0;
+    private int freeList = NULL_NODE;
+    private int[] stkNNa = new int[Dbvt.DOUBLE_STACKSIZE];
+    private int[] stkNNb = new int[Dbvt.DOUBLE_STACKSIZE];
+    private int stackAllocations = 0;
+    private final Vector3 tmp = new Vector3();
+    private int[] leafBuffer = new int[Dbvt.SIMPLE_STACKSIZE];
+    public int root = NULL_NODE;
+    public int leaves = 0;
+    public int opath = 0;
+
+    public FlatDbvt() {
+    }
+
+    public void optimizeIncremental(int passes) {
+        if (passes < 0) {
+            passes = leaves;
+        }
+        if (root != NULL_NODE && passes > 0) {
+            do {
+                var node = root;
+                var bit = 0;
+                while (isinternal(node)) {
+                    node = getChild(sort(node), opath >>> bit & 1);
+                    bit = bit + 1 & 4 * 8 - 1;
+                }
+                update(node);
+                ++opath;
+            } while (--passes != 0);
+        }
+    }
+
+    public void optimizeTopDown() {
+        optimizeTopDown(Dbvt.DEFAULT_BU_TRESHOLD);
+    }
+
+    public void optimizeTopDown(int bu_treshold) {
+        if (root != NULL_NODE) {
+            var count = fetchleaves(root);
+            root = topdown(leafBuffer, 0, count, Math.max(bu_treshold, 1));
+            parent[root] = NULL_NODE;
+        }
+    }
+
+    public int insert(DbvtAabbMm box, Object data) {
+        var leaf = createnode(NULL_NODE, box, data);
+        insertleaf(root, leaf);
+        leaves++;
+        return leaf;
+    }
+
+    public void update(int leaf) {
+        var root = removeleaf(leaf);
+        if (root != NULL_NODE) {
+            root = this.root;
+        }
+        insertleaf(root, leaf);
+    }
+
+    public void update(int leaf, DbvtAabbMm volume) {
+        var root = removeleaf(leaf);
+        if (root != NULL_NODE) {
+            root = this.root;
+        }
+        setBounds(leaf, volume);
+        insertleaf(root, leaf);
+    }
+
+    public boolean update(int leaf, DbvtAabbMm volume, Vector3 velocity, float margin) {
+        if (contains(leaf, volume)) {
+            return false;
+        }
+        tmp.set(margin, margin, margin);
+        volume.Expand(tmp);
+        volume.SignedExpand(velocity);
+        update(leaf, volume);
+        return true;
+    }
+
+    public void remove(int leaf) {
+        removeleaf(leaf);
+        deletenode(leaf);
+        leaves--;
+    }
+
+    public void collideTT(int root0, FlatDbvt tree1, int root1, ICollide policy) {
+        if (root0 != NULL_NODE && root1 != NULL_NODE) {
+            var self = tree1 == this;
+            var depth = 1;
+            var treshold = stkNNa.length - 4;
+            stkNNa[0] = root0;
+            stkNNb[0] = root1;
+            do {
+                --depth;
+                var a = stkNNa[depth];
+                var b = stkNNb[depth];
+                if (depth > treshold) {
+                    growStack();
+                    treshold = stkNNa.length - 4;
+                }
+                if (self && a == b) {
+                    if (isinternal(a)) {
+                        depth = push(depth, child0[a], child0[a]);
+                        depth = push(depth, child1[a], child1[a]);
+                        depth = push(depth, child0[a], child1[a]);
+                    }
+                } else if (intersect(bounds, a, tree1.bounds, b)) {
+                    if (isinternal(a)) {
+                        if (tree1.isinternal(b)) {
+                            depth = push(depth, child0[a], tree1.child0[b]);
+                            depth = push(depth, child1[a], tree1.child0[b]);
+                            depth = push(depth, child0[a], tree1.child1[b]);
+                            depth = push(depth, child1[a], tree1.child1[b]);
+                        } else {
+                            depth = push(depth, child0[a], b);
+                            depth = push(depth, child1[a], b);
+                        }
+                    } else {
+                        if (tree1.isinternal(b)) {
+                            depth = push(depth, a, tree1.child0[b]);
+                            depth = push(depth, a, tree1.child1[b]);
+                        } else {
+                            policy.Process(data[a], tree1.data[b]);
+                        }
+                    }
+                }
+            } while (depth > 0);
+        }
+    }
+
+    public void collideTV(int root, DbvtAabbMm volume, IVolumeCollide policy) {
+        if (root != NULL_NODE) {
+            var mi = volume.Mins();
+            var mx = volume.Maxs();
+            var stack = policy.stack;
+            var depth = 1;
+            stack[0] = root;
+            do {
+                var node = stack[--depth];
+                var i = node * 6;
+                if (bounds[i] <= mx.x && bounds[i + 3] >= mi.x && bounds[i + 1] <= mx.y && bounds[i + 4] >= mi.y && bounds[i + 2] <= mx.z && bounds[i + 5] >= mi.z) {
+                    if (isinternal(node)) {
+                        if (depth + 2 > stack.length) {
+                            stack = Arrays.copyOf(stack, stack.length << 1);
+                            policy.stack = stack;
+                        }
+                        stack[depth++] = child0[node];
+                        stack[depth++] = child1[node];
+                    } else {
+                        policy.Process(data[node]);
+                    }
+                }
+            } while (depth > 0);
+        }
+    }
+
+    public void rayTest(int root, Vector3 rayFrom, Vector3 rayTo, Vector3 aabbMin, Vector3 aabbMax, IRayCollide policy) {
+        if (root != NULL_NODE) {
+            var delta = policy.rayDelta.set(rayTo).sub(rayFrom);
+            var stack = policy.stack;
+            var depth = 1;
+            stack[0] = root;
+            do {
+                var node = stack[--depth];
+                var i = node * 6;
+                if (AabbUtil2.rayAabb2(rayFrom, delta, bounds[i] - aabbMax.x, bounds[i + 1] - aabbMax.y, bounds[i + 2] - aabbMax.z, bounds[i + 3] - aabbMin.x, bounds[i + 4] - aabbMin.y, bounds[i + 5] - aabbMin.z, policy.lambdaMax)) {
+                    if (isinternal(node)) {
+                        if (depth + 2 > stack.length) {
+                            stack = Arrays.copyOf(stack, stack.length << 1);
+                            policy.stack = stack;
+                        }
+                        stack[depth++] = child0[node];
+                        stack[depth++] = child1[node];
+                    } else {
+                        policy.Process(data[node]);
+                    }
+                }
+            } while (depth > 0);
+        }
+    }
+
+    public boolean isleaf(int node) {
+        return child1[node] == NULL_NODE;
+    }
+
+    public boolean isinternal(int node) {
+        return child1[node] != NULL_NODE;
+    }
+
+    public int getChild(int node, int i) {
+        return i == 0 ? child0[node] : child1[node];
+    }
+
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    public Object getData(int node) {
+        return data[node];
+    }
+
+    public DbvtAabbMm getVolume(int node, DbvtAabbMm out) {
+        var i = node * 6;
+        out.Mins().set(bounds[i], bounds[i + 1], bounds[i + 2]);
+        out.Maxs().set(bounds[i + 3], bounds[i + 4], bounds[i + 5]);
+        return out;
+    }
+
+    public boolean intersects(int node, DbvtAabbMm volume) {
+        var i = node * 6;
+        var mi = volume.Mins();
+        var mx = volume.Maxs();
+        return bounds[i] <= mx.x && bounds[i + 3] >= mi.x && bounds[i + 1] <= mx.y && bounds[i + 4] >= mi.y && bounds[i + 2] <= mx.z && bounds[i + 5] >= mi.z;
+    }
+
+    public boolean contains(int node, DbvtAabbMm volume) {
+        var i = node * 6;
+        var mi = volume.Mins();
+        var mx = volume.Maxs();
+        return bounds[i] <= mi.x && bounds[i + 1] <= mi.y && bounds[i + 2] <= mi.z && bounds[i + 3] >= mx.x && bounds[i + 4] >= mx.y && bounds[i + 5] >= mx.z;
+    }
+
+    public int getNodeCapacity() {
+        return parent.length;
+    }
+
+    public int getStackAllocations() {
+        return stackAllocations;
+    }
+
+    private int push(int depth, int a, int b) {
+        stkNNa[depth] = a;
+        stkNNb[depth] = b;
+        return depth + 1;
+    }
+
+    private void growStack() {
+        var size = stkNNa.length << 1;
+        var na = new int[size];
+        var nb = new int[size];
+        System.arraycopy(stkNNa, 0, na, 0, stkNNa.length);
+        System.arraycopy(stkNNb, 0, nb, 0, stkNNb.length);
+        stkNNa = na;
+        stkNNb = nb;
+        stackAllocations++;
+    }
+
+    private static boolean intersect(float[] ba, int a, float[] bb, int b) {
+        var i = a * 6;
+        var j = b * 6;
+        return ba[i] <= bb[j + 3] && ba[i + 3] >= bb[j] && ba[i + 1] <= bb[j + 4] && ba[i + 4] >= bb[j + 1] && ba[i + 2] <= bb[j + 5] && ba[i + 5] >= bb[j + 2];
+    }
+
+    private float proximity(int a, int b) {
+        var i = a * 6;
+        var j = b * 6;
+        var dx = bounds[i] + bounds[i + 3] - (bounds[j] + bounds[j + 3]);
+        var dy = bounds[i + 1] + bounds[i + 4] - (bounds[j + 1] + bounds[j + 4]);
+        var dz = bounds[i + 2] + bounds[i + 5] - (bounds[j + 2] + bounds[j + 5]);
+        return Math.abs(dx) + Math.abs(dy) + Math.abs(dz);
+    }
+
+    private void merge(int a, int b, int r) {
+        var i = a * 6;
+        var j = b * 6;
+        var k = r * 6;
+        for (var c = 0; c < 3; c++) {
+            bounds[k + c] = Math.min(bounds[i + c], bounds[j + c]);
+            bounds[k + c + 3] = Math.max(bounds[i + c + 3], bounds[j + c + 3]);
+        }
+    }
+
+    private boolean contain(int a, int b) {
+        var i = a * 6;
+        var j = b * 6;
+        return bounds[i] <= bounds[j] && bounds[i + 1] <= bounds[j + 1] && bounds[i + 2] <= bounds[j + 2] && bounds[i + 3] >= bounds[j + 3] && bounds[i + 4] >= bounds[j + 4] && bounds[i + 5] >= bounds[j + 5];
+    }
+
+    private void setBounds(int node, DbvtAabbMm volume) {
+        var i = node * 6;
+        var mi = volume.Mins();
+        var mx = volume.Maxs();
+        bounds[i] = mi.x;
+        bounds[i + 1] = mi.y;
+        bounds[i + 2] = mi.z;
+        bounds[i + 3] = mx.x;
+        bounds[i + 4] = mx.y;
+        bounds[i + 5] = mx.z;
+    }
+
+    private void swapBounds(int a, int b) {
+        var i = a * 6;
+        var j = b * 6;
+        for (var c = 0; c < 6; c++) {
+            var t = bounds[i + c];
+            bounds[i + c] = bounds[j + c];
+            bounds[j + c] = t;
+        }
+    }
+
+    private int indexof(int node) {
+        return child1[parent[node]] == node ? 1 : 0;
+    }
+
+    private void setChild(int node, int i, int child) {
+        if (i == 0) {
+            child0[node] = child;
+        } else {
+            child1[node] = child;
+        }
+    }
+
+    private void deletenode(int node) {
+        data[node] = null;
+        parent[node] = freeList;
+        freeList = node;
+    }
+
+    private int createnode(int parent, DbvtAabbMm volume, Object data) {
+        int node;
+        if (freeList != NULL_NODE) {
+            node = freeList;
+            freeList = this.parent[node];
+        } else {
+            if (nodeCount == this.parent.length) {
+                growNodes();
+            }
+            node = nodeCount++;
+        }
+        this.parent[node] = parent;
+        if (volume != null) {
+            setBounds(node, volume);
+        }
+        this.data[node] = data;
+        child0[node] = NULL_NODE;
+        child1[node] = NULL_NODE;
+        return node;
+    }
+
+    private void growNodes() {
+        var capacity = parent.length << 1;
+        var nb = new float[capacity * 6];
+        var np = new int[capacity];
+        var n0 = new int[capacity];
+        var n1 = new int[capacity];
+        var nd = new Object[capacity];
+        System.arraycopy(bounds, 0, nb, 0, bounds.length);
+        System.arraycopy(parent, 0, np, 0, parent.length);
+        System.arraycopy(child0, 0, n0, 0, child0.length);
+        System.arraycopy(child1, 0, n1, 0, child1.length);
+        System.arraycopy(data, 0, nd, 0, data.length);
+        bounds = nb;
+        parent = np;
+        child0 = n0;
+        child1 = n1;
+        data = nd;
+    }
+
+    private int fetchleaves(int root) {
+        if (leafBuffer.length < leaves) {
+            leafBuffer = new int[leaves];
+        }
+        var count = 0;
+        var depth = 1;
+        stkNNa[0] = root;
+        do {
+            var node = stkNNa[--depth];
+            if (isinternal(node)) {
+                if (depth + 2 > stkNNa.length) {
+                    growStack();
+                }
+                stkNNa[depth++] = child0[node];
+                stkNNa[depth++] = child1[node];
+                deletenode(node);
+            } else {
+                if (count == leafBuffer.length) {
+                    var newBuffer = new int[count << 1];
+                    System.arraycopy(leafBuffer, 0, newBuffer, 0, count);
+                    leafBuffer = newBuffer;
+                }
+                leafBuffer[count++] = node;
+            }
+        } while (depth > 0);
+        return count;
+    }
+
+    private int topdown(int[] leaves, int lo, int hi, int bu_treshold) {
+        var count = hi - lo;
+        if (count > 1) {
+            if (count > bu_treshold) {
+                var node = createnode(NULL_NODE, null, null);
+                copyBounds(leaves[lo], node);
+                for (var i = lo + 1; i < hi; i++) {
+                    merge(node, leaves[i], node);
+                }
+                var bestaxis = -1;
+                var bestmidp = count;
+                for (var axis = 0; axis < 3; axis++) {
+                    var org = center2(node, axis);
+                    var left = 0;
+                    for (var i = lo; i < hi; i++) {
+                        if (center2(leaves[i], axis) < org) {
+                            left++;
+                        }
+                    }
+                    var right = count - left;
+                    if (left > 0 && right > 0) {
+                        var midp = Math.abs(left - right);
+                        if (midp < bestmidp) {
+                            bestaxis = axis;
+                            bestmidp = midp;
+                        }
+                    }
+                }
+                int mid;
+                if (bestaxis >= 0) {
+                    var org = center2(node, bestaxis);
+                    var i = lo;
+                    var j = hi - 1;
+                    while (i <= j) {
+                        if (center2(leaves[i], bestaxis) < org) {
+                            i++;
+                        } else {
+                            var t = leaves[i];
+                            leaves[i] = leaves[j];
+                            leaves[j--] = t;
+                        }
+                    }
+                    mid = i;
+                } else {
+                    mid = lo + (count >> 1);
+                }
+                var c0 = topdown(leaves, lo, mid, bu_treshold);
+                var c1 = topdown(leaves, mid, hi, bu_treshold);
+                child0[node] = c0;
+                child1[node] = c1;
+                parent[c0] = node;
+                parent[c1] = node;
+                return node;
+            } else {
+                bottomup(leaves, lo, hi);
+            }
+        }
+        return leaves[lo];
+    }
+
+    private void bottomup(int[] leaves, int lo, int hi) {
+        while (hi - lo > 1) {
+            var minsize = Float.POSITIVE_INFINITY;
+            var minidx0 = -1;
+            var minidx1 = -1;
+            for (var i = lo; i < hi; i++) {
+                for (var j = i + 1; j < hi; j++) {
+                    var sz = mergedSize(leaves[i], leaves[j]);
+                    if (sz < minsize) {
+                        minsize = sz;
+                        minidx0 = i;
+                        minidx1 = j;
+                    }
+                }
+            }
+            var n0 = leaves[minidx0];
+            var n1 = leaves[minidx1];
+            var p = createnode(NULL_NODE, null, null);
+            merge(n0, n1, p);
+            child0[p] = n0;
+            child1[p] = n1;
+            parent[n0] = p;
+            parent[n1] = p;
+            leaves[minidx0] = p;
+            leaves[minidx1] = leaves[--hi];
+        }
+    }
+
+    private float center2(int node, int axis) {
+        var i = node * 6 + axis;
+        return bounds[i] + bounds[i + 3];
+    }
+
+    private float mergedSize(int a, int b) {
+        var i = a * 6;
+        var j = b * 6;
+        var ex = Math.max(bounds[i + 3], bounds[j + 3]) - Math.min(bounds[i], bounds[j]);
+        var ey = Math.max(bounds[i + 4], bounds[j + 4]) - Math.min(bounds[i + 1], bounds[j + 1]);
+        var ez = Math.max(bounds[i + 5], bounds[j + 5]) - Math.min(bounds[i + 2], bounds[j + 2]);
+        return ex * ey * ez + ex + ey + ez;
+    }
+
+    private void copyBounds(int from, int to) {
+        System.arraycopy(bounds, from * 6, bounds, to * 6, 6);
+    }
+
+    private void insertleaf(int root, int leaf) {
+        if (this.root == NULL_NODE) {
+            this.root = leaf;
+            parent[leaf] = NULL_NODE;
+        } else {
+            while (isinternal(root)) {
+                if (proximity(child0[root], leaf) < proximity(child1[root], leaf)) {
+                    root = child0[root];
+                } else {
+                    root = child1[root];
+                }
+            }
+            var prev = parent[root];
+            var node = createnode(prev, null, null);
+            merge(leaf, root, node);
+            if (prev != NULL_NODE) {
+                setChild(prev, indexof(root), node);
+                child0[node] = root;
+                parent[root] = node;
+                child1[node] = leaf;
+                parent[leaf] = node;
+                do {
+                    if (!contain(prev, node)) {
+                        merge(child0[prev], child1[prev], prev);
+                    } else {
+                        break;
+                    }
+                    node = prev;
+                } while (NULL_NODE != (prev = parent[node]));
+            } else {
+                child0[node] = root;
+                parent[root] = node;
+                child1[node] = leaf;
+                parent[leaf] = node;
+                this.root = node;
+            }
+        }
+    }
+
+    private int removeleaf(int leaf) {
+        if (leaf == root) {
+            root = NULL_NODE;
+            return NULL_NODE;
+        } else {
+            var parent = this.parent[leaf];
+            var prev = this.parent[parent];
+            var sibling = getChild(parent, 1 - indexof(leaf));
+            if (prev != NULL_NODE) {
+                setChild(prev, indexof(parent), sibling);
+                this.parent[sibling] = prev;
+                deletenode(parent);
+                while (prev != NULL_NODE) {
+                    var i = prev * 6;
+                    float mix = bounds[i], miy = bounds[i + 1], miz = bounds[i + 2];
+                    float mxx = bounds[i + 3], mxy = bounds[i + 4], mxz = bounds[i + 5];
+                    merge(child0[prev], child1[prev], prev);
+                    if (mix != bounds[i] || miy != bounds[i + 1] || miz != bounds[i + 2] || mxx != bounds[i + 3] || mxy != bounds[i + 4] || mxz != bounds[i + 5]) {
+                        prev = this.parent[prev];
+                    } else {
+                        break;
+                    }
+                }
+                return prev != NULL_NODE ? prev : root;
+            } else {
+                root = sibling;
+                this.parent[sibling] = NULL_NODE;
+                deletenode(parent);
+                return root;
+            }
+        }
+    }
+
+    private int sort(int n) {
+        var p = parent[n];
+        if (p != NULL_NODE && p > n) {
+            var i = indexof(n);
+            var j = 1 - i;
+            var s = getChild(p, j);
+            var q = parent[p];
+            if (q != NULL_NODE) {
+                setChild(q, indexof(p), n);
+            } else {
+                root = n;
+            }
+            parent[s] = n;
+            parent[p] = n;
+            parent[n] = q;
+            child0[p] = child0[n];
+            child1[p] = child1[n];
+            parent[child0[n]] = p;
+            parent[child1[n]] = p;
+            setChild(n, i, p);
+            setChild(n, j, s);
+            swapBounds(p, n);
+            return p;
+        }
+        return n;
+    }
+
+    public static class ICollide {
+        public void Process(Object data0, Object data1) {
+        }
+
+        public void Process(Object data) {
+        }
+    }
+
+    public static class IVolumeCollide extends ICollide {
+        public final DbvtAabbMm volume = new DbvtAabbMm();
+        public int[] stack = new int[Dbvt.SIMPLE_STACKSIZE];
+    }
+
+    public static class IRayCollide extends ICollide {
+        public float lambdaMax = 1f;
+        public final Vector3 rayDelta = new Vector3();
+        public int[] stack = new int[Dbvt.SIMPLE_STACKSIZE];
+    }
+}
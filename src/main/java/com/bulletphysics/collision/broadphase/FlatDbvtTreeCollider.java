@@ -0,0 +1,23 @@
+package com.bulletphysics.collision.broadphase;
+
+public class FlatDbvtTreeCollider extends FlatDbvt.ICollide {
+    public final DbvtBroadPhase pbp;
+
+    public FlatDbvtTreeCollider(DbvtBroadPhase p) {
+        pbp = p;
+    }
+
+    @Override
+    public void Process(Object data0, Object data1) {
+        var pa = (DbvtProxy) data0;
+        var pb = (DbvtProxy) data1;
+        if (DbvtAabbMm.Intersect(pa.aabb, pb.aabb)) {
+            if (pa.getUid() > pb.getUid()) {
+                var tmp = pa;
+                pa = pb;
+                pb = tmp;
+            }
+            pbp.paircache.addOverlappingPair(pa, pb);
+        }
+    }
+}
@@ -30,7 +30,7 @@ public class HashedOverlappingPairCache extends OverlappingPairCache {
         }
         var proxyId1 = proxy0.getUid();
         var proxyId2 = proxy1.getUid();
-        var hash = getHash(proxyId1, proxyId2) & overlappingPairArray.size() - 1;
+        var hash = getHash(proxyId1, proxyId2) & overlappingPairArray.capacity() - 1;
         var pair = internalFindPair(proxy0, proxy1, hash);
         if (pair == null) {
             return null;
@@ -39,7 +39,7 @@ public class HashedOverlappingPairCache extends OverlappingPairCache {
         var userData = pair.userInfo;
 
 
-        var pairIndex = overlappingPairArray.indexOf(pair);
+        var pairIndex = pair.index;
 
 
         var index = hashTable.get(hash);
@@ -103,6 +103,34 @@ public class HashedOverlappingPairCache extends OverlappingPairCache {
         }
     }
 
+    @Override
+    public void removeOverlappingPairs(OverlapCallback callback, Dispatcher dispatcher) {
+        var count = overlappingPairArray.size();
+        var kept = 0;
+        for (var i = 0; i < count; i++) {
+            var pair = overlappingPairArray.get(i);
+            if (callback.processOverlap(pair)) {
+                cleanOverlappingPair(pair, dispatcher);
+                if (ghostPairCallback != null) {
+                    ghostPairCallback.removeOverlappingPair(pair.pProxy0, pair.pProxy1, dispatcher);
+                }
+            } else {
+                if (kept != i) {
+                    overlappingPairArray.set(kept, pair);
+                    pair.index = kept;
+                }
+                kept++;
+            }
+        }
+        if (kept == count) {
+            return;
+        }
+        for (var i = count - 1; i >= kept; i--) {
+            overlappingPairArray.remove(i);
+        }
+        rebuildHashTable();
+    }
+
     @Override
     public void cleanProxyFromPairs(BroadPhaseProxy proxy, Dispatcher dispatcher) {
         processAllOverlappingPairs(new CleanPairCallback(proxy, this, dispatcher), dispatcher);
@@ -171,6 +199,7 @@ public class HashedOverlappingPairCache extends OverlappingPairCache {
         pair = new BroadPhasePair(proxy0, proxy1);
         pair.algorithm = null;
         pair.userInfo = null;
+        pair.index = count;
         overlappingPairArray.set(overlappingPairArray.size() - 1, pair);
         next.set(count, hashTable.get(hash));
         hashTable.set(hash, count);
@@ -200,6 +229,20 @@ public class HashedOverlappingPairCache extends OverlappingPairCache {
         }
     }
 
+    private void rebuildHashTable() {
+        var capacity = hashTable.size();
+        for (var i = 0; i < capacity; i++) {
+            hashTable.set(i, NULL_PAIR);
+            next.set(i, NULL_PAIR);
+        }
+        for (int i = 0, n = overlappingPairArray.size(); i < n; i++) {
+            var pair = overlappingPairArray.get(i);
+            var hashValue = getHash(pair.pProxy0.getUid(), pair.pProxy1.getUid()) & overlappingPairArray.capacity() - 1;
+            next.set(i, hashTable.get(hashValue));
+            hashTable.set(hashValue, i);
+        }
+    }
+
     private boolean equalsPair(BroadPhasePair pair, int proxyId1, int proxyId2) {
         return pair.pProxy0.getUid() != proxyId1 || pair.pProxy1.getUid() != proxyId2;
     }
@@ -0,0 +1,225 @@
+package com.bulletphysics.collision.broadphase;
+
+import com.bulletphysics.ArrayList;
+
+import java.util.Arrays;
+
+public class OpenAddressingOverlappingPairCache extends OverlappingPairCache {
+    private static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 64;
+    private final ArrayList<BroadPhasePair> overlappingPairArray = new ArrayList<>();
+    private long[] keys = new long[MIN_CAPACITY / 2];
+    private int[] table = new int[MIN_CAPACITY];
+    private int mask = MIN_CAPACITY - 1;
+    protected OverlappingPairCallback ghostPairCallback;
+
+    public OpenAddressingOverlappingPairCache() {
+        Arrays.fill(table, EMPTY);
+    }
+
+    public BroadPhasePair addOverlappingPair(BroadPhaseProxy proxy0, BroadPhaseProxy proxy1) {
+        if (!needsBroadphaseCollision(proxy0, proxy1)) {
+            return null;
+        }
+        if (proxy0.getUid() > proxy1.getUid()) {
+            var tmp = proxy0;
+            proxy0 = proxy1;
+            proxy1 = tmp;
+        }
+        var key = getKey(proxy0.getUid(), proxy1.getUid());
+        var slot = findSlot(key);
+        if (table[slot] != EMPTY) {
+            return overlappingPairArray.get(table[slot]);
+        }
+        var count = overlappingPairArray.size();
+        if ((count + 1) * 2 > table.length) {
+            growTables();
+            slot = findSlot(key);
+        }
+        if (ghostPairCallback != null) {
+            ghostPairCallback.addOverlappingPair(proxy0, proxy1);
+        }
+        var pair = new BroadPhasePair(proxy0, proxy1);
+        pair.index = count;
+        overlappingPairArray.add(pair);
+        keys[count] = key;
+        table[slot] = count;
+        return pair;
+    }
+
+    public Object removeOverlappingPair(BroadPhaseProxy proxy0, BroadPhaseProxy proxy1, Dispatcher dispatcher) {
+        var slot = findSlot(getKey(proxy0.getUid(), proxy1.getUid()));
+        var pairIndex = table[slot];
+        if (pairIndex == EMPTY) {
+            return null;
+        }
+        var pair = overlappingPairArray.get(pairIndex);
+        cleanOverlappingPair(pair, dispatcher);
+        var userData = pair.userInfo;
+        if (ghostPairCallback != null) {
+            ghostPairCallback.removeOverlappingPair(pair.pProxy0, pair.pProxy1, dispatcher);
+        }
+        removeSlot(slot);
+        var lastPairIndex = overlappingPairArray.size() - 1;
+        if (lastPairIndex != pairIndex) {
+            var last = overlappingPairArray.get(lastPairIndex);
+            table[findSlot(keys[lastPairIndex])] = pairIndex;
+            keys[pairIndex] = keys[lastPairIndex];
+            last.index = pairIndex;
+            overlappingPairArray.set(pairIndex, last);
+        }
+        overlappingPairArray.remove(lastPairIndex);
+        pair.index = -1;
+        return userData;
+    }
+
+    public boolean needsBroadphaseCollision(BroadPhaseProxy proxy0, BroadPhaseProxy proxy1) {
+        var collides = (proxy0.collisionFilterGroup & proxy1.collisionFilterMask) != 0;
+        collides = collides && (proxy1.collisionFilterGroup & proxy0.collisionFilterMask) != 0;
+        return collides;
+    }
+
+    @Override
+    public void processAllOverlappingPairs(OverlapCallback callback, Dispatcher dispatcher) {
+        for (var i = 0; i < overlappingPairArray.size(); ) {
+            var pair = overlappingPairArray.get(i);
+            if (callback.processOverlap(pair)) {
+                removeOverlappingPair(pair.pProxy0, pair.pProxy1, dispatcher);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    @Override
+    public void removeOverlappingPairs(OverlapCallback callback, Dispatcher dispatcher) {
+        var count = overlappingPairArray.size();
+        var kept = 0;
+        for (var i = 0; i < count; i++) {
+            var pair = overlappingPairArray.get(i);
+            if (callback.processOverlap(pair)) {
+                cleanOverlappingPair(pair, dispatcher);
+                if (ghostPairCallback != null) {
+                    ghostPairCallback.removeOverlappingPair(pair.pProxy0, pair.pProxy1, dispatcher);
+                }
+                pair.index = -1;
+            } else {
+                if (kept != i) {
+                    overlappingPairArray.set(kept, pair);
+                    keys[kept] = keys[i];
+                    pair.index = kept;
+                }
+                kept++;
+            }
+        }
+        if (kept == count) {
+            return;
+        }
+        for (var i = count - 1; i >= kept; i--) {
+            overlappingPairArray.remove(i);
+        }
+        rebuildTable();
+    }
+
+    @Override
+    public void cleanProxyFromPairs(BroadPhaseProxy proxy, Dispatcher dispatcher) {
+        for (int i = 0, n = overlappingPairArray.size(); i < n; i++) {
+            var pair = overlappingPairArray.get(i);
+            if (pair.pProxy0 == proxy || pair.pProxy1 == proxy) {
+                cleanOverlappingPair(pair, dispatcher);
+            }
+        }
+    }
+
+    @Override
+    public ArrayList<BroadPhasePair> getOverlappingPairArray() {
+        return overlappingPairArray;
+    }
+
+    @Override
+    public void cleanOverlappingPair(BroadPhasePair pair, Dispatcher dispatcher) {
+        if (pair.algorithm != null) {
+            dispatcher.freeCollisionAlgorithm(pair.algorithm);
+            pair.algorithm = null;
+        }
+    }
+
+    @Override
+    public BroadPhasePair findPair(BroadPhaseProxy proxy0, BroadPhaseProxy proxy1) {
+        var index = table[findSlot(getKey(proxy0.getUid(), proxy1.getUid()))];
+        return index != EMPTY ? overlappingPairArray.get(index) : null;
+    }
+
+    public int getTableCapacity() {
+        return table.length;
+    }
+
+    private int findSlot(long key) {
+        var slot = hash(key) & mask;
+        while (true) {
+            var index = table[slot];
+            if (index == EMPTY || keys[index] == key) {
+                return slot;
+            }
+            slot = slot + 1 & mask;
+        }
+    }
+
+    private void removeSlot(int slot) {
+        var hole = slot;
+        var probe = slot;
+        while (true) {
+            probe = probe + 1 & mask;
+            var index = table[probe];
+            if (index == EMPTY) {
+                break;
+            }
+            var home = hash(keys[index]) & mask;
+            var movable = hole <= probe ? home <= hole || home > probe : home <= hole && home > probe;
+            if (movable) {
+                table[hole] = index;
+                hole = probe;
+            }
+        }
+        table[hole] = EMPTY;
+    }
+
+    private void growTables() {
+        var capacity = table.length << 1;
+        table = new int[capacity];
+        mask = capacity - 1;
+        var newKeys = new long[capacity / 2];
+        System.arraycopy(keys, 0, newKeys, 0, overlappingPairArray.size());
+        keys = newKeys;
+        rebuildTable();
+    }
+
+    private void rebuildTable() {
+        Arrays.fill(table, EMPTY);
+        for (int i = 0, n = overlappingPairArray.size(); i < n; i++) {
+            var slot = hash(keys[i]) & mask;
+            while (table[slot] != EMPTY) {
+                slot = slot + 1 & mask;
+            }
+            table[slot] = i;
+        }
+    }
+
+    private static long getKey(int uid0, int uid1) {
+        if (uid0 > uid1) {
+            var tmp = uid0;
+            uid0 = uid1;
+            uid1 = tmp;
+        }
+        return (long) uid0 << 32 | uid1 & 0xffffffffL;
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -11,5 +11,7 @@ public abstract class OverlappingPairCache extends OverlappingPairCallback {
 
     public abstract void processAllOverlappingPairs(OverlapCallback callback, Dispatcher dispatcher);
 
+    public abstract void removeOverlappingPairs(OverlapCallback callback, Dispatcher dispatcher);
+
     public abstract BroadPhasePair findPair(BroadPhaseProxy proxy0, BroadPhaseProxy proxy1);
 }
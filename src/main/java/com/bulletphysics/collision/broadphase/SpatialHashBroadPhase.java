@@ -0,0 +1,466 @@
+package com.bulletphysics.collision.broadphase;
+
+import com.bulletphysics.AabbUtil2;
+import com.bulletphysics.TaskScheduler;
+
+import javax.vecmath.Vector3;
+import java.util.Arrays;
+
+public class SpatialHashBroadPhase extends BroadPhaseInterface {
+    public static final int DEFAULT_MAX_CELLS_PER_PROXY = 64;
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1024;
+    public static final int PARALLEL_TASKS = 64;
+    private static final int EMPTY = -1;
+    private static final int CELL_BITS = 21;
+    private static final int CELL_MASK = (1 << CELL_BITS) - 1;
+    public final OverlappingPairCache paircache;
+    public final float cellSize;
+    private final float invCellSize;
+    public int maxCellsPerProxy = DEFAULT_MAX_CELLS_PER_PROXY;
+    public int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private SpatialHashProxy[] proxies = new SpatialHashProxy[64];
+    private int numProxies = 0;
+    private int[] oversized = new int[8];
+    private int numOversized = 0;
+    private int[] tableCells = new int[64];
+    private int tableMask = 63;
+    private int[] cellX = new int[32];
+    private int[] cellY = new int[32];
+    private int[] cellZ = new int[32];
+    private int[][] cellMembers = new int[32][];
+    private int[] cellCounts = new int[32];
+    private int numCells = 0;
+    private TaskScheduler scheduler = null;
+    private PairBuffer[] buffers = {new PairBuffer()};
+    private final StalePairCallback stalePairCallback = new StalePairCallback();
+
+    public SpatialHashBroadPhase(float cellSize) {
+        this(cellSize, null);
+    }
+
+    public SpatialHashBroadPhase(float cellSize, OverlappingPairCache paircache) {
+        this.paircache = paircache != null ? paircache : new HashedOverlappingPairCache();
+        this.cellSize = cellSize;
+        invCellSize = 1f / cellSize;
+        Arrays.fill(tableCells, EMPTY);
+    }
+
+    public BroadPhaseProxy createProxy(Vector3 aabbMin, Vector3 aabbMax, Object userPtr, short collisionFilterGroup, short collisionFilterMask) {
+        var proxy = new SpatialHashProxy(userPtr, collisionFilterGroup, collisionFilterMask);
+        if (numProxies == proxies.length) {
+            proxies = Arrays.copyOf(proxies, numProxies << 1);
+        }
+        proxy.index = numProxies;
+        proxy.uniqueId = numProxies + 1;
+        proxies[numProxies++] = proxy;
+        proxy.aabbMin.set(aabbMin);
+        proxy.aabbMax.set(aabbMax);
+        setCellRange(proxy);
+        insertCells(proxy);
+        return proxy;
+    }
+
+    public void setAabb(BroadPhaseProxy absproxy, Vector3 aabbMin, Vector3 aabbMax) {
+        var proxy = (SpatialHashProxy) absproxy;
+        proxy.aabbMin.set(aabbMin);
+        proxy.aabbMax.set(aabbMax);
+        int minX = cell(aabbMin.x), minY = cell(aabbMin.y), minZ = cell(aabbMin.z);
+        int maxX = cell(aabbMax.x), maxY = cell(aabbMax.y), maxZ = cell(aabbMax.z);
+        if (minX == proxy.minX && minY == proxy.minY && minZ == proxy.minZ &&
+                maxX == proxy.maxX && maxY == proxy.maxY && maxZ == proxy.maxZ) {
+            return;
+        }
+        if (proxy.oversized || isOversized(minX, minY, minZ, maxX, maxY, maxZ)) {
+            removeCells(proxy);
+            setCellRange(proxy);
+            insertCells(proxy);
+            return;
+        }
+        for (var x = proxy.minX; x <= proxy.maxX; x++) {
+            for (var y = proxy.minY; y <= proxy.maxY; y++) {
+                for (var z = proxy.minZ; z <= proxy.maxZ; z++) {
+                    if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+                        removeFromCell(findCell(x, y, z), proxy.index);
+                    }
+                }
+            }
+        }
+        for (var x = minX; x <= maxX; x++) {
+            for (var y = minY; y <= maxY; y++) {
+                for (var z = minZ; z <= maxZ; z++) {
+                    if (x < proxy.minX || x > proxy.maxX || y < proxy.minY || y > proxy.maxY || z < proxy.minZ || z > proxy.maxZ) {
+                        addToCell(findOrCreateCell(x, y, z), proxy.index);
+                    }
+                }
+            }
+        }
+        proxy.minX = minX;
+        proxy.minY = minY;
+        proxy.minZ = minZ;
+        proxy.maxX = maxX;
+        proxy.maxY = maxY;
+        proxy.maxZ = maxZ;
+    }
+
+    public void calculateOverlappingPairs(Dispatcher dispatcher) {
+        if (scheduler != null && numCells >= parallelThreshold) {
+            var tasks = buffers.length;
+            var cells = numCells;
+            scheduler.parallelFor(tasks, task -> collectCellPairs((int) ((long) cells * task / tasks), (int) ((long) cells * (task + 1) / tasks), buffers[task]));
+        } else {
+            collectCellPairs(0, numCells, buffers[0]);
+        }
+        for (var buffer : buffers) {
+            buffer.flush(paircache, proxies);
+        }
+        collectOversizedPairs(buffers[0]);
+        buffers[0].flush(paircache, proxies);
+        paircache.removeOverlappingPairs(stalePairCallback, dispatcher);
+    }
+
+    public void rayTest(Vector3 rayFrom, Vector3 rayTo, BroadPhaseRayCallback rayCallback, Vector3 aabbMin, Vector3 aabbMax) {
+        var delta = new Vector3(rayTo).sub(rayFrom);
+        for (var i = 0; i < numProxies; i++) {
+            var proxy = proxies[i];
+            var mi = proxy.aabbMin;
+            var mx = proxy.aabbMax;
+            if (AabbUtil2.rayAabb2(rayFrom, delta, mi.x - aabbMax.x, mi.y - aabbMax.y, mi.z - aabbMax.z, mx.x - aabbMin.x, mx.y - aabbMin.y, mx.z - aabbMin.z, rayCallback.lambdaMax)) {
+                rayCallback.process(proxy);
+            }
+        }
+    }
+
+    public void aabbTest(Vector3 aabbMin, Vector3 aabbMax, BroadPhaseAabbCallback callback) {
+        int minX = cell(aabbMin.x), minY = cell(aabbMin.y), minZ = cell(aabbMin.z);
+        int maxX = cell(aabbMax.x), maxY = cell(aabbMax.y), maxZ = cell(aabbMax.z);
+        if (isOversized(minX, minY, minZ, maxX, maxY, maxZ)) {
+            for (var i = 0; i < numProxies; i++) {
+                var proxy = proxies[i];
+                if (AabbUtil2.testAabbAgainstAabb2(proxy.aabbMin, proxy.aabbMax, aabbMin, aabbMax)) {
+                    callback.process(proxy);
+                }
+            }
+            return;
+        }
+        for (var x = minX; x <= maxX; x++) {
+            for (var y = minY; y <= maxY; y++) {
+                for (var z = minZ; z <= maxZ; z++) {
+                    var c = lookupCell(x, y, z);
+                    if (c == EMPTY) {
+                        continue;
+                    }
+                    var members = cellMembers[c];
+                    for (int i = 0, count = cellCounts[c]; i < count; i++) {
+                        var proxy = proxies[members[i]];
+                        if (Math.max(proxy.minX, minX) == x && Math.max(proxy.minY, minY) == y && Math.max(proxy.minZ, minZ) == z &&
+                                AabbUtil2.testAabbAgainstAabb2(proxy.aabbMin, proxy.aabbMax, aabbMin, aabbMax)) {
+                            callback.process(proxy);
+                        }
+                    }
+                }
+            }
+        }
+        for (var i = 0; i < numOversized; i++) {
+            var proxy = proxies[oversized[i]];
+            if (AabbUtil2.testAabbAgainstAabb2(proxy.aabbMin, proxy.aabbMax, aabbMin, aabbMax)) {
+                callback.process(proxy);
+            }
+        }
+    }
+
+    public OverlappingPairCache getOverlappingPairCache() {
+        return paircache;
+    }
+
+    public TaskScheduler getTaskScheduler() {
+        return scheduler;
+    }
+
+    public void setTaskScheduler(TaskScheduler scheduler) {
+        this.scheduler = scheduler;
+        buffers = new PairBuffer[scheduler != null ? PARALLEL_TASKS : 1];
+        for (var i = 0; i < buffers.length; i++) {
+            buffers[i] = new PairBuffer();
+        }
+    }
+
+    public int getNumCells() {
+        return numCells;
+    }
+
+    public int getNumOversized() {
+        return numOversized;
+    }
+
+    private void collectCellPairs(int from, int to, PairBuffer buffer) {
+        for (var c = from; c < to; c++) {
+            var count = cellCounts[c];
+            if (count < 2) {
+                continue;
+            }
+            var members = cellMembers[c];
+            int cx = cellX[c], cy = cellY[c], cz = cellZ[c];
+            for (var i = 0; i < count; i++) {
+                var a = proxies[members[i]];
+                for (var j = i + 1; j < count; j++) {
+                    var b = proxies[members[j]];
+                    if (Math.max(a.minX, b.minX) == cx && Math.max(a.minY, b.minY) == cy && Math.max(a.minZ, b.minZ) == cz &&
+                            needsCollision(a, b) && overlap(a, b)) {
+                        buffer.add(a.index, b.index);
+                    }
+                }
+            }
+        }
+    }
+
+    private void collectOversizedPairs(PairBuffer buffer) {
+        for (var i = 0; i < numOversized; i++) {
+            var a = proxies[oversized[i]];
+            for (var j = 0; j < numProxies; j++) {
+                var b = proxies[j];
+                if (b == a || b.oversized && b.index < a.index) {
+                    continue;
+                }
+                if (needsCollision(a, b) && overlap(a, b)) {
+                    buffer.add(a.index, b.index);
+                }
+            }
+        }
+    }
+
+    private static boolean needsCollision(BroadPhaseProxy a, BroadPhaseProxy b) {
+        return (a.collisionFilterGroup & b.collisionFilterMask) != 0 && (b.collisionFilterGroup & a.collisionFilterMask) != 0;
+    }
+
+    private static boolean overlap(SpatialHashProxy a, SpatialHashProxy b) {
+        return a.aabbMin.x <= b.aabbMax.x && b.aabbMin.x <= a.aabbMax.x &&
+                a.aabbMin.y <= b.aabbMax.y && b.aabbMin.y <= a.aabbMax.y &&
+                a.aabbMin.z <= b.aabbMax.z && b.aabbMin.z <= a.aabbMax.z;
+    }
+
+    private int cell(float v) {
+        return (int) Math.floor(v * invCellSize);
+    }
+
+    private void setCellRange(SpatialHashProxy proxy) {
+        proxy.minX = cell(proxy.aabbMin.x);
+        proxy.minY = cell(proxy.aabbMin.y);
+        proxy.minZ = cell(proxy.aabbMin.z);
+        proxy.maxX = cell(proxy.aabbMax.x);
+        proxy.maxY = cell(proxy.aabbMax.y);
+        proxy.maxZ = cell(proxy.aabbMax.z);
+    }
+
+    private boolean isOversized(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        var cells = (long) maxX - minX + 1;
+        if (cells > maxCellsPerProxy) {
+            return true;
+        }
+        cells *= (long) maxY - minY + 1;
+        if (cells > maxCellsPerProxy) {
+            return true;
+        }
+        cells *= (long) maxZ - minZ + 1;
+        return cells > maxCellsPerProxy;
+    }
+
+    private void insertCells(SpatialHashProxy proxy) {
+        proxy.oversized = isOversized(proxy.minX, proxy.minY, proxy.minZ, proxy.maxX, proxy.maxY, proxy.maxZ);
+        if (proxy.oversized) {
+            if (numOversized == oversized.length) {
+                oversized = Arrays.copyOf(oversized, numOversized << 1);
+            }
+            oversized[numOversized++] = proxy.index;
+            return;
+        }
+        for (var x = proxy.minX; x <= proxy.maxX; x++) {
+            for (var y = proxy.minY; y <= proxy.maxY; y++) {
+                for (var z = proxy.minZ; z <= proxy.maxZ; z++) {
+                    addToCell(findOrCreateCell(x, y, z), proxy.index);
+                }
+            }
+        }
+    }
+
+    private void removeCells(SpatialHashProxy proxy) {
+        if (proxy.oversized) {
+            for (var i = 0; i < numOversized; i++) {
+                if (oversized[i] == proxy.index) {
+                    System.arraycopy(oversized, i + 1, oversized, i, numOversized - i - 1);
+                    numOversized--;
+                    break;
+                }
+            }
+            proxy.oversized = false;
+            return;
+        }
+        for (var x = proxy.minX; x <= proxy.maxX; x++) {
+            for (var y = proxy.minY; y <= proxy.maxY; y++) {
+                for (var z = proxy.minZ; z <= proxy.maxZ; z++) {
+                    removeFromCell(findCell(x, y, z), proxy.index);
+                }
+            }
+        }
+    }
+
+    private void addToCell(int c, int proxyIndex) {
+        var members = cellMembers[c];
+        var count = cellCounts[c];
+        if (count == members.length) {
+            members = Arrays.copyOf(members, count << 1);
+            cellMembers[c] = members;
+        }
+        members[count] = proxyIndex;
+        cellCounts[c] = count + 1;
+    }
+
+    private void removeFromCell(int c, int proxyIndex) {
+        var members = cellMembers[c];
+        var count = cellCounts[c];
+        for (var i = 0; i < count; i++) {
+            if (members[i] == proxyIndex) {
+                members[i] = members[count - 1];
+                cellCounts[c] = count - 1;
+                if (count == 1) {
+                    freeCell(c);
+                }
+                return;
+            }
+        }
+    }
+
+    private static long key(int x, int y, int z) {
+        return (long) (x & CELL_MASK) << CELL_BITS * 2 | (long) (y & CELL_MASK) << CELL_BITS | z & CELL_MASK;
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private int findSlot(int x, int y, int z) {
+        var slot = hash(key(x, y, z)) & tableMask;
+        while (true) {
+            var c = tableCells[slot];
+            if (c == EMPTY || cellX[c] == x && cellY[c] == y && cellZ[c] == z) {
+                return slot;
+            }
+            slot = slot + 1 & tableMask;
+        }
+    }
+
+    private int findCell(int x, int y, int z) {
+        return tableCells[findSlot(x, y, z)];
+    }
+
+    private int lookupCell(int x, int y, int z) {
+        return tableCells[findSlot(x, y, z)];
+    }
+
+    private int findOrCreateCell(int x, int y, int z) {
+        var slot = findSlot(x, y, z);
+        if (tableCells[slot] != EMPTY) {
+            return tableCells[slot];
+        }
+        if ((numCells + 1) * 2 > tableCells.length) {
+            growTable();
+            slot = findSlot(x, y, z);
+        }
+        if (numCells == cellCounts.length) {
+            var capacity = numCells << 1;
+            cellX = Arrays.copyOf(cellX, capacity);
+            cellY = Arrays.copyOf(cellY, capacity);
+            cellZ = Arrays.copyOf(cellZ, capacity);
+            cellMembers = Arrays.copyOf(cellMembers, capacity);
+            cellCounts = Arrays.copyOf(cellCounts, capacity);
+        }
+        var c = numCells++;
+        cellX[c] = x;
+        cellY[c] = y;
+        cellZ[c] = z;
+        if (cellMembers[c] == null) {
+            cellMembers[c] = new int[4];
+        }
+        cellCounts[c] = 0;
+        tableCells[slot] = c;
+        return c;
+    }
+
+    private void freeCell(int c) {
+        removeSlot(findSlot(cellX[c], cellY[c], cellZ[c]));
+        var last = --numCells;
+        if (c != last) {
+            tableCells[findSlot(cellX[last], cellY[last], cellZ[last])] = c;
+            cellX[c] = cellX[last];
+            cellY[c] = cellY[last];
+            cellZ[c] = cellZ[last];
+            cellCounts[c] = cellCounts[last];
+            var members = cellMembers[c];
+            cellMembers[c] = cellMembers[last];
+            cellMembers[last] = members;
+        }
+        cellCounts[last] = 0;
+    }
+
+    private void removeSlot(int slot) {
+        var hole = slot;
+        var probe = slot;
+        while (true) {
+            probe = probe + 1 & tableMask;
+            var c = tableCells[probe];
+            if (c == EMPTY) {
+                break;
+            }
+            var home = hash(key(cellX[c], cellY[c], cellZ[c])) & tableMask;
+            var movable = hole <= probe ? home <= hole || home > probe : home <= hole && home > probe;
+            if (movable) {
+                tableCells[hole] = c;
+                hole = probe;
+            }
+        }
+        tableCells[hole] = EMPTY;
+    }
+
+    private void growTable() {
+        var capacity = tableCells.length << 1;
+        tableCells = new int[capacity];
+        tableMask = capacity - 1;
+        Arrays.fill(tableCells, EMPTY);
+        for (var c = 0; c < numCells; c++) {
+            var slot = hash(key(cellX[c], cellY[c], cellZ[c])) & tableMask;
+            while (tableCells[slot] != EMPTY) {
+                slot = slot + 1 & tableMask;
+            }
+            tableCells[slot] = c;
+        }
+    }
+
+    private static class PairBuffer {
+        public int[] pairs = new int[64];
+        public int count = 0;
+
+        public void add(int a, int b) {
+            if (count + 2 > pairs.length) {
+                pairs = Arrays.copyOf(pairs, pairs.length << 1);
+            }
+            pairs[count++] = a;
+            pairs[count++] = b;
+        }
+
+        public void flush(OverlappingPairCache paircache, SpatialHashProxy[] proxies) {
+            for (var i = 0; i < count; i += 2) {
+                paircache.addOverlappingPair(proxies[pairs[i]], proxies[pairs[i + 1]]);
+            }
+            count = 0;
+        }
+    }
+
+    private static class StalePairCallback extends OverlapCallback {
+        @Override
+        public boolean processOverlap(BroadPhasePair pair) {
+            return !overlap((SpatialHashProxy) pair.pProxy0, (SpatialHashProxy) pair.pProxy1);
+        }
+    }
+}
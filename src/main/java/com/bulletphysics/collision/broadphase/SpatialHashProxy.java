@@ -0,0 +1,16 @@
+package com.bulletphysics.collision.broadphase;
+
+import javax.vecmath.Vector3;
+
+public class SpatialHashProxy extends BroadPhaseProxy {
+    public final Vector3 aabbMin = new Vector3();
+    public final Vector3 aabbMax = new Vector3();
+    public int index;
+    public int minX, minY, minZ;
+    public int maxX, maxY, maxZ;
+    public boolean oversized;
+
+    public SpatialHashProxy(Object userPtr, short collisionFilterGroup, short collisionFilterMask) {
+        super(userPtr, collisionFilterGroup, collisionFilterMask);
+    }
+}
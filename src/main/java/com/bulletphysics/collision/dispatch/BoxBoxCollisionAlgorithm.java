@@ -0,0 +1,211 @@
+package com.bulletphysics.collision.dispatch;
+
+import com.bulletphysics.BulletGlobals;
+import com.bulletphysics.Transform;
+import com.bulletphysics.collision.broadphase.CollisionAlgorithm;
+import com.bulletphysics.collision.broadphase.CollisionAlgorithmConstructionInfo;
+import com.bulletphysics.collision.narrowphase.PersistentManifold;
+import com.bulletphysics.collision.narrowphase.PolyhedralContactClipping;
+import com.bulletphysics.collision.shapes.BoxShape;
+
+import javax.vecmath.Vector3;
+import java.util.List;
+
+public class BoxBoxCollisionAlgorithm extends CollisionAlgorithm {
+    private static final float RELATIVE_TOLERANCE = 0.95f;
+    private static final float ABSOLUTE_TOLERANCE = 0.01f;
+    public boolean ownManifold;
+    public PersistentManifold manifoldPtr;
+    private final Transform transA = new Transform();
+    private final Transform transB = new Transform();
+    private final Vector3[] axesA = {new Vector3(), new Vector3(), new Vector3()};
+    private final Vector3[] axesB = {new Vector3(), new Vector3(), new Vector3()};
+    private final float[] extA = new float[3];
+    private final float[] extB = new float[3];
+    private final Vector3 delta = new Vector3();
+    private final Vector3 edgeAxis = new Vector3();
+    private final Vector3 bestEdgeAxis = new Vector3();
+    private final Vector3 normal = new Vector3();
+    private final Vector3 pointA = new Vector3();
+    private final Vector3 pointB = new Vector3();
+    private final Vector3 tmp = new Vector3();
+    private final PolyhedralContactClipping clipping = new PolyhedralContactClipping();
+    private BoxShape boxA;
+    private BoxShape boxB;
+
+    public void init(PersistentManifold mf, CollisionAlgorithmConstructionInfo ci) {
+        super.init(ci);
+        manifoldPtr = mf;
+        ownManifold = false;
+    }
+
+    @Override
+    public void destroy() {
+        if (ownManifold) {
+            if (manifoldPtr != null) dispatcher.releaseManifold(manifoldPtr);
+        }
+        manifoldPtr = null;
+        boxA = null;
+        boxB = null;
+    }
+
+    @Override
+    public void prepareCollision(CollisionObject body0, CollisionObject body1) {
+        if (manifoldPtr == null) {
+            manifoldPtr = dispatcher.getNewManifold(body0, body1);
+            ownManifold = true;
+        }
+    }
+
+    @Override
+    public void processCollision(CollisionObject body0, CollisionObject body1, ManifoldResult resultOut) {
+        prepareCollision(body0, body1);
+        resultOut.setPersistentManifold(manifoldPtr);
+        var threshold = manifoldPtr.getContactBreakingThreshold() + resultOut.getSpeculativeMargin();
+        manifoldPtr.setContactProcessingThreshold(threshold);
+        boxA = (BoxShape) body0.getCollisionShape();
+        boxB = (BoxShape) body1.getCollisionShape();
+        loadBox(boxA, body0.getWorldTransform(transA), axesA, extA);
+        loadBox(boxB, body1.getWorldTransform(transB), axesB, extB);
+        delta.set(transB.origin).sub(transA.origin);
+        collideBoxes(threshold, resultOut);
+        if (ownManifold) resultOut.refreshContactPoints();
+    }
+
+    private static void loadBox(BoxShape box, Transform trans, Vector3[] axes, float[] ext) {
+        var margin = box.getMargin();
+        var halfExtents = box.getHalfExtentsWithoutMargin(axes[0]);
+        ext[0] = halfExtents.x + margin;
+        ext[1] = halfExtents.y + margin;
+        ext[2] = halfExtents.z + margin;
+        for (var i = 0; i < 3; i++) {
+            trans.basis.getColumn(i, axes[i]);
+        }
+    }
+
+    private void collideBoxes(float threshold, ManifoldResult resultOut) {
+        var sepA = -Float.MAX_VALUE;
+        var faceA = 0;
+        for (var i = 0; i < 3; i++) {
+            var s = Math.abs(delta.dot(axesA[i])) - extA[i] - projectBox(axesA[i], axesB, extB);
+            if (s > threshold) {
+                return;
+            }
+            if (s > sepA) {
+                sepA = s;
+                faceA = i;
+            }
+        }
+        var sepB = -Float.MAX_VALUE;
+        var faceB = 0;
+        for (var i = 0; i < 3; i++) {
+            var s = Math.abs(delta.dot(axesB[i])) - extB[i] - projectBox(axesB[i], axesA, extA);
+            if (s > threshold) {
+                return;
+            }
+            if (s > sepB) {
+                sepB = s;
+                faceB = i;
+            }
+        }
+        var sepEdge = -Float.MAX_VALUE;
+        var edgeA = -1;
+        var edgeB = -1;
+        for (var i = 0; i < 3; i++) {
+            for (var j = 0; j < 3; j++) {
+                edgeAxis.cross(axesA[i], axesB[j]);
+                var lenSqr = edgeAxis.lengthSquared();
+                if (lenSqr < 1e-6f) {
+                    continue;
+                }
+                edgeAxis.mul(1f / (float) Math.sqrt(lenSqr));
+                var s = Math.abs(delta.dot(edgeAxis)) - projectBox(edgeAxis, axesA, extA) - projectBox(edgeAxis, axesB, extB);
+                if (s > threshold) {
+                    return;
+                }
+                if (s > sepEdge) {
+                    sepEdge = s;
+                    edgeA = i;
+                    edgeB = j;
+                    bestEdgeAxis.set(edgeAxis);
+                }
+            }
+        }
+        var referenceIsA = true;
+        var faceSep = sepA;
+        if (sepB > RELATIVE_TOLERANCE * sepA + ABSOLUTE_TOLERANCE) {
+            referenceIsA = false;
+            faceSep = sepB;
+        }
+        if (edgeA >= 0 && sepEdge > RELATIVE_TOLERANCE * faceSep + ABSOLUTE_TOLERANCE) {
+            addEdgeContact(edgeA, edgeB, sepEdge, resultOut);
+        } else if (referenceIsA) {
+            addFaceContacts(true, faceA, threshold, resultOut);
+        } else {
+            addFaceContacts(false, faceB, threshold, resultOut);
+        }
+    }
+
+    private static float projectBox(Vector3 axis, Vector3[] axes, float[] ext) {
+        return ext[0] * Math.abs(axis.dot(axes[0])) + ext[1] * Math.abs(axis.dot(axes[1])) + ext[2] * Math.abs(axis.dot(axes[2]));
+    }
+
+    private void addEdgeContact(int edgeA, int edgeB, float separation, ManifoldResult resultOut) {
+        if (delta.dot(bestEdgeAxis) < 0f) {
+            bestEdgeAxis.negate();
+        }
+        pointA.set(transA.origin);
+        pointB.set(transB.origin);
+        for (var k = 0; k < 3; k++) {
+            if (k != edgeA) {
+                var sign = axesA[k].dot(bestEdgeAxis) >= 0f ? extA[k] : -extA[k];
+                pointA.scaleAdd(sign, axesA[k], pointA);
+            }
+            if (k != edgeB) {
+                var sign = axesB[k].dot(bestEdgeAxis) >= 0f ? -extB[k] : extB[k];
+                pointB.scaleAdd(sign, axesB[k], pointB);
+            }
+        }
+        var dirA = axesA[edgeA];
+        var dirB = axesB[edgeB];
+        tmp.set(pointA).sub(pointB);
+        var b = dirA.dot(dirB);
+        var c = dirA.dot(tmp);
+        var f = dirB.dot(tmp);
+        var denom = 1f - b * b;
+        var s = denom > BulletGlobals.EPSILON ? (b * f - c) / denom : 0f;
+        s = Math.max(-extA[edgeA], Math.min(extA[edgeA], s));
+        var t = b * s + f;
+        t = Math.max(-extB[edgeB], Math.min(extB[edgeB], t));
+        pointB.scaleAdd(t, dirB, pointB);
+        normal.set(bestEdgeAxis).negate();
+        resultOut.addContactPoint(normal, pointB, separation);
+    }
+
+    private void addFaceContacts(boolean referenceIsA, int face, float threshold, ManifoldResult resultOut) {
+        var refAxis = referenceIsA ? axesA[face] : axesB[face];
+        var refFace = delta.dot(refAxis) < 0f == referenceIsA ? face + 3 : face;
+        if (referenceIsA) {
+            clipping.clipFace(boxA, transA, refFace, boxB, transB, true, threshold, resultOut);
+        } else {
+            clipping.clipFace(boxB, transB, refFace, boxA, transA, false, threshold, resultOut);
+        }
+    }
+
+    @Override
+    public void getAllContactManifolds(List<PersistentManifold> manifoldArray) {
+        if (manifoldPtr != null && ownManifold) manifoldArray.add(manifoldPtr);
+    }
+
+    public static class CreateFunc extends CollisionAlgorithmCreateFunc {
+        @Override
+        protected CollisionAlgorithm newAlgorithm() {
+            return new BoxBoxCollisionAlgorithm();
+        }
+
+        @Override
+        protected void initAlgorithm(CollisionAlgorithm algo, CollisionAlgorithmConstructionInfo ci, CollisionObject body0, CollisionObject body1) {
+            ((BoxBoxCollisionAlgorithm) algo).init(ci.manifold, ci);
+        }
+    }
+}
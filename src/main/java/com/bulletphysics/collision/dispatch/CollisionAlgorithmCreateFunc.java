@@ -0,0 +1,71 @@
+package com.bulletphysics.collision.dispatch;
+
+import com.bulletphysics.collision.broadphase.CollisionAlgorithm;
+import com.bulletphysics.collision.broadphase.CollisionAlgorithmConstructionInfo;
+
+import java.util.Arrays;
+
+public abstract class CollisionAlgorithmCreateFunc {
+    public static final int DEFAULT_MAX_FREE_ALGORITHMS = 4096;
+    public boolean swapped;
+    private CollisionAlgorithm[] freeAlgorithms = new CollisionAlgorithm[16];
+    private int freeAlgorithmCount = 0;
+    private int maxFreeAlgorithms = DEFAULT_MAX_FREE_ALGORITHMS;
+    private int poolHits = 0;
+    private int poolMisses = 0;
+
+    public CollisionAlgorithm createCollisionAlgorithm(CollisionAlgorithmConstructionInfo ci, CollisionObject body0, CollisionObject body1) {
+        CollisionAlgorithm algo;
+        if (freeAlgorithmCount > 0) {
+            algo = freeAlgorithms[--freeAlgorithmCount];
+            freeAlgorithms[freeAlgorithmCount] = null;
+            poolHits++;
+        } else {
+            algo = newAlgorithm();
+            poolMisses++;
+        }
+        initAlgorithm(algo, ci, body0, body1);
+        algo.internalSetCreateFunc(this);
+        return algo;
+    }
+
+    public void releaseCollisionAlgorithm(CollisionAlgorithm algo) {
+        if (freeAlgorithmCount < maxFreeAlgorithms) {
+            if (freeAlgorithmCount == freeAlgorithms.length) {
+                freeAlgorithms = Arrays.copyOf(freeAlgorithms, Math.min(freeAlgorithms.length << 1, maxFreeAlgorithms));
+            }
+            freeAlgorithms[freeAlgorithmCount++] = algo;
+        }
+    }
+
+    protected abstract CollisionAlgorithm newAlgorithm();
+
+    protected abstract void initAlgorithm(CollisionAlgorithm algo, CollisionAlgorithmConstructionInfo ci, CollisionObject body0, CollisionObject body1);
+
+    public int getMaxFreeAlgorithms() {
+        return maxFreeAlgorithms;
+    }
+
+    public void setMaxFreeAlgorithms(int maxFreeAlgorithms) {
+        this.maxFreeAlgorithms = Math.max(0, maxFreeAlgorithms);
+        trimFreeAlgorithms(this.maxFreeAlgorithms);
+    }
+
+    public void trimFreeAlgorithms(int count) {
+        while (freeAlgorithmCount > count) {
+            freeAlgorithms[--freeAlgorithmCount] = null;
+        }
+    }
+
+    public int getFreeAlgorithmCount() {
+        return freeAlgorithmCount;
+    }
+
+    public int getPoolHits() {
+        return poolHits;
+    }
+
+    public int getPoolMisses() {
+        return poolMisses;
+    }
+}
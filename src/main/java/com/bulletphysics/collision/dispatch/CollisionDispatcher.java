@@ -1,23 +1,54 @@
 package com.bulletphysics.collision.dispatch;
 
+import com.bulletphysics.TaskScheduler;
 import com.bulletphysics.collision.broadphase.*;
 import com.bulletphysics.collision.narrowphase.GjkEpaPenetrationDepthSolver;
 import com.bulletphysics.collision.narrowphase.PersistentManifold;
 import com.bulletphysics.collision.narrowphase.VoronoiSimplexSolver;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 
 public class CollisionDispatcher extends Dispatcher {
+    public static final int DEFAULT_MAX_FREE_MANIFOLDS = 4096;
+    public static final int DEFAULT_NARROWPHASE_CHUNK_SIZE = 64;
+    private static final int MAX_SHAPE_TYPES = BroadphaseNativeType.values().length;
     private final ArrayList<PersistentManifold> manifoldsPtr = new ArrayList<>();
     private boolean staticWarningReported = false;
     private NearCallback nearCallback;
     private final CollisionAlgorithmConstructionInfo tmpCI = new CollisionAlgorithmConstructionInfo();
     private final VoronoiSimplexSolver simplexSolver = new VoronoiSimplexSolver();
     private final GjkEpaPenetrationDepthSolver pdSolver = new GjkEpaPenetrationDepthSolver();
+    private final CollisionAlgorithmCreateFunc[][] doubleDispatch = new CollisionAlgorithmCreateFunc[MAX_SHAPE_TYPES][MAX_SHAPE_TYPES];
+    private final ArrayList<CollisionAlgorithmCreateFunc> createFuncs = new ArrayList<>();
+    private int maxFreeAlgorithms = CollisionAlgorithmCreateFunc.DEFAULT_MAX_FREE_ALGORITHMS;
+    private PersistentManifold[] freeManifolds = new PersistentManifold[16];
+    private int freeManifoldCount = 0;
+    private int maxFreeManifolds = DEFAULT_MAX_FREE_MANIFOLDS;
+    private int manifoldPoolHits = 0;
+    private int manifoldPoolMisses = 0;
+    public int narrowphaseChunkSize = DEFAULT_NARROWPHASE_CHUNK_SIZE;
+    private TaskScheduler scheduler = null;
+    private BroadPhasePair[] narrowphasePairs = new BroadPhasePair[16];
+    private NarrowphaseWorker[] narrowphaseWorkers = {new NarrowphaseWorker()};
+    private final NarrowphaseTask narrowphaseTask = new NarrowphaseTask();
 
     public CollisionDispatcher() {
         setNearCallback(new DefaultNearCallback());
+        var convexConvexCreateFunc = new ConvexConvexAlgorithm.CreateFunc(simplexSolver, pdSolver);
+        for (var type0 : BroadphaseNativeType.values()) {
+            for (var type1 : BroadphaseNativeType.values()) {
+                registerCollisionCreateFunc(type0, type1, convexConvexCreateFunc);
+            }
+        }
+        var sphereBoxCreateFunc = new SphereBoxCollisionAlgorithm.CreateFunc();
+        var boxSphereCreateFunc = new SphereBoxCollisionAlgorithm.CreateFunc();
+        boxSphereCreateFunc.swapped = true;
+        registerCollisionCreateFunc(BroadphaseNativeType.SPHERE_SHAPE_PROXYTYPE, BroadphaseNativeType.SPHERE_SHAPE_PROXYTYPE, new SphereSphereCollisionAlgorithm.CreateFunc());
+        registerCollisionCreateFunc(BroadphaseNativeType.SPHERE_SHAPE_PROXYTYPE, BroadphaseNativeType.BOX_SHAPE_PROXYTYPE, sphereBoxCreateFunc);
+        registerCollisionCreateFunc(BroadphaseNativeType.BOX_SHAPE_PROXYTYPE, BroadphaseNativeType.SPHERE_SHAPE_PROXYTYPE, boxSphereCreateFunc);
+        registerCollisionCreateFunc(BroadphaseNativeType.BOX_SHAPE_PROXYTYPE, BroadphaseNativeType.BOX_SHAPE_PROXYTYPE, new BoxBoxCollisionAlgorithm.CreateFunc());
     }
 
     public NearCallback getNearCallback() {
@@ -28,23 +59,93 @@ public class CollisionDispatcher extends Dispatcher {
         this.nearCallback = nearCallback;
     }
 
+    public void registerCollisionCreateFunc(BroadphaseNativeType proxyType0, BroadphaseNativeType proxyType1, CollisionAlgorithmCreateFunc createFunc) {
+        doubleDispatch[proxyType0.ordinal()][proxyType1.ordinal()] = createFunc;
+        if (!createFuncs.contains(createFunc)) {
+            createFunc.setMaxFreeAlgorithms(maxFreeAlgorithms);
+            createFuncs.add(createFunc);
+        }
+    }
+
     @Override
     public CollisionAlgorithm findAlgorithm(CollisionObject body0, CollisionObject body1, PersistentManifold sharedManifold) {
         tmpCI.dispatcher1 = this;
         tmpCI.manifold = sharedManifold;
-        return new ConvexConvexAlgorithm(tmpCI.manifold, tmpCI, simplexSolver, pdSolver);
+        var type0 = body0.getCollisionShape().getShapeType().ordinal();
+        var type1 = body1.getCollisionShape().getShapeType().ordinal();
+        return doubleDispatch[type0][type1].createCollisionAlgorithm(tmpCI, body0, body1);
     }
 
     @Override
     public void freeCollisionAlgorithm(CollisionAlgorithm algo) {
+        var createFunc = algo.internalGetCreateFunc();
+        algo.internalSetCreateFunc(null);
         algo.destroy();
+        if (createFunc != null) {
+            createFunc.releaseCollisionAlgorithm(algo);
+        }
+    }
+
+    public int getMaxFreeAlgorithms() {
+        return maxFreeAlgorithms;
+    }
+
+    public void setMaxFreeAlgorithms(int maxFreeAlgorithms) {
+        this.maxFreeAlgorithms = Math.max(0, maxFreeAlgorithms);
+        for (var createFunc : createFuncs) {
+            createFunc.setMaxFreeAlgorithms(this.maxFreeAlgorithms);
+        }
+    }
+
+    public void trimFreeAlgorithms(int count) {
+        for (var createFunc : createFuncs) {
+            createFunc.trimFreeAlgorithms(count);
+        }
+    }
+
+    public int getFreeAlgorithmCount() {
+        var count = 0;
+        for (var createFunc : createFuncs) {
+            count += createFunc.getFreeAlgorithmCount();
+        }
+        return count;
+    }
+
+    public int getAlgorithmPoolHits() {
+        var hits = 0;
+        for (var createFunc : createFuncs) {
+            hits += createFunc.getPoolHits();
+        }
+        return hits;
+    }
+
+    public int getAlgorithmPoolMisses() {
+        var misses = 0;
+        for (var createFunc : createFuncs) {
+            misses += createFunc.getPoolMisses();
+        }
+        return misses;
+    }
+
+    public float getAlgorithmPoolHitRate() {
+        var hits = getAlgorithmPoolHits();
+        var requests = hits + getAlgorithmPoolMisses();
+        return requests != 0 ? (float) hits / requests : 0f;
     }
 
     @Override
     public PersistentManifold getNewManifold(Object b0, Object b1) {
         var body0 = (CollisionObject) b0;
         var body1 = (CollisionObject) b1;
-        var manifold = new PersistentManifold();
+        PersistentManifold manifold;
+        if (freeManifoldCount > 0) {
+            manifold = freeManifolds[--freeManifoldCount];
+            freeManifolds[freeManifoldCount] = null;
+            manifoldPoolHits++;
+        } else {
+            manifold = new PersistentManifold();
+            manifoldPoolMisses++;
+        }
         manifold.init(body0, body1);
         manifold.index1a = manifoldsPtr.size();
         manifoldsPtr.add(manifold);
@@ -59,6 +160,84 @@ public class CollisionDispatcher extends Dispatcher {
         Collections.swap(manifoldsPtr, findIndex, manifoldsPtr.size() - 1);
         manifoldsPtr.get(findIndex).index1a = findIndex;
         manifoldsPtr.remove(manifoldsPtr.size() - 1);
+        manifold.init(null, null);
+        if (freeManifoldCount < maxFreeManifolds) {
+            if (freeManifoldCount == freeManifolds.length) {
+                freeManifolds = Arrays.copyOf(freeManifolds, Math.min(freeManifolds.length << 1, maxFreeManifolds));
+            }
+            freeManifolds[freeManifoldCount++] = manifold;
+        }
+    }
+
+    public int getMaxFreeManifolds() {
+        return maxFreeManifolds;
+    }
+
+    public void setMaxFreeManifolds(int maxFreeManifolds) {
+        this.maxFreeManifolds = Math.max(0, maxFreeManifolds);
+        trimFreeManifolds(this.maxFreeManifolds);
+    }
+
+    public void trimFreeManifolds(int count) {
+        while (freeManifoldCount > count) {
+            freeManifolds[--freeManifoldCount] = null;
+        }
+    }
+
+    public int getFreeManifoldCount() {
+        return freeManifoldCount;
+    }
+
+    public int getManifoldPoolHits() {
+        return manifoldPoolHits;
+    }
+
+    public int getManifoldPoolMisses() {
+        return manifoldPoolMisses;
+    }
+
+    public float getManifoldPoolHitRate() {
+        var requests = manifoldPoolHits + manifoldPoolMisses;
+        return requests != 0 ? (float) manifoldPoolHits / requests : 0f;
+    }
+
+    public long getEpaIterations() {
+        var iterations = pdSolver.getSolver().getEpaIterations();
+        for (var worker : narrowphaseWorkers) {
+            iterations += worker.pdSolver.getSolver().getEpaIterations();
+        }
+        return iterations;
+    }
+
+    public int getEpaFailures() {
+        var failures = pdSolver.getSolver().getEpaFailures();
+        for (var worker : narrowphaseWorkers) {
+            failures += worker.pdSolver.getSolver().getEpaFailures();
+        }
+        return failures;
+    }
+
+    public long getEpaGjkIterations() {
+        var iterations = pdSolver.getSolver().getGjkIterations();
+        for (var worker : narrowphaseWorkers) {
+            iterations += worker.pdSolver.getSolver().getGjkIterations();
+        }
+        return iterations;
+    }
+
+    public int getEpaGjkFailures() {
+        var failures = pdSolver.getSolver().getGjkFailures();
+        for (var worker : narrowphaseWorkers) {
+            failures += worker.pdSolver.getSolver().getGjkFailures();
+        }
+        return failures;
+    }
+
+    public void resetEpaCounters() {
+        pdSolver.getSolver().resetCounters();
+        for (var worker : narrowphaseWorkers) {
+            worker.pdSolver.getSolver().resetCounters();
+        }
     }
 
     @Override
@@ -111,8 +290,86 @@ public class CollisionDispatcher extends Dispatcher {
 
     @Override
     public void dispatchAllCollisionPairs(OverlappingPairCache pairCache, DispatcherInfo dispatchInfo, Dispatcher dispatcher) {
-        collisionPairCallback.init(dispatchInfo, this);
-        pairCache.processAllOverlappingPairs(collisionPairCallback, dispatcher);
+        var chunkSize = Math.max(1, narrowphaseChunkSize);
+        var pairs = pairCache.getOverlappingPairArray();
+        if (scheduler == null || pairs.size() <= chunkSize || nearCallback.getClass() != DefaultNearCallback.class) {
+            collisionPairCallback.init(dispatchInfo, this);
+            pairCache.processAllOverlappingPairs(collisionPairCallback, dispatcher);
+            return;
+        }
+        var count = 0;
+        for (int i = 0, n = pairs.size(); i < n; i++) {
+            var pair = pairs.get(i);
+            var colObj0 = (CollisionObject) pair.pProxy0.clientObject;
+            var colObj1 = (CollisionObject) pair.pProxy1.clientObject;
+            if (needsCollision(colObj0, colObj1)) {
+                if (pair.algorithm == null) {
+                    pair.algorithm = findAlgorithm(colObj0, colObj1);
+                }
+                if (pair.algorithm != null) {
+                    pair.algorithm.prepareCollision(colObj0, colObj1);
+                    if (count == narrowphasePairs.length) {
+                        narrowphasePairs = Arrays.copyOf(narrowphasePairs, count << 1);
+                    }
+                    narrowphasePairs[count++] = pair;
+                }
+            }
+        }
+        var tasks = Math.min(scheduler.getThreadCount(), (count + chunkSize - 1) / chunkSize);
+        if (narrowphaseWorkers.length < tasks) {
+            var workers = Arrays.copyOf(narrowphaseWorkers, tasks);
+            for (var i = narrowphaseWorkers.length; i < tasks; i++) {
+                workers[i] = new NarrowphaseWorker();
+            }
+            narrowphaseWorkers = workers;
+        }
+        narrowphaseTask.dispatchInfo = dispatchInfo;
+        narrowphaseTask.count = count;
+        narrowphaseTask.tasks = tasks;
+        scheduler.parallelFor(tasks, narrowphaseTask);
+        narrowphaseTask.dispatchInfo = null;
+        Arrays.fill(narrowphasePairs, 0, count, null);
+    }
+
+    private void processNarrowphasePairs(NarrowphaseWorker worker, DispatcherInfo dispatchInfo, int from, int to) {
+        var result = worker.contactPointResult;
+        for (var i = from; i < to; i++) {
+            var pair = narrowphasePairs[i];
+            var colObj0 = (CollisionObject) pair.pProxy0.clientObject;
+            var colObj1 = (CollisionObject) pair.pProxy1.clientObject;
+            if (pair.algorithm instanceof ConvexConvexAlgorithm convexAlgo) {
+                convexAlgo.setSolvers(worker.simplexSolver, worker.pdSolver);
+            }
+            result.init(colObj0, colObj1, dispatchInfo);
+            pair.algorithm.processCollision(colObj0, colObj1, result);
+        }
+    }
+
+    public TaskScheduler getTaskScheduler() {
+        return scheduler;
+    }
+
+    public void setTaskScheduler(TaskScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    private class NarrowphaseTask implements TaskScheduler.Task {
+        private DispatcherInfo dispatchInfo;
+        private int count;
+        private int tasks;
+
+        @Override
+        public void run(int taskIndex) {
+            var from = (int) ((long) count * taskIndex / tasks);
+            var to = (int) ((long) count * (taskIndex + 1) / tasks);
+            processNarrowphasePairs(narrowphaseWorkers[taskIndex], dispatchInfo, from, to);
+        }
+    }
+
+    private static class NarrowphaseWorker {
+        public final VoronoiSimplexSolver simplexSolver = new VoronoiSimplexSolver();
+        public final GjkEpaPenetrationDepthSolver pdSolver = new GjkEpaPenetrationDepthSolver();
+        public final ManifoldResult contactPointResult = new ManifoldResult();
     }
 
     @Override
@@ -31,6 +31,7 @@ public class CollisionObject {
     protected float ccdSweptSphereRadius;
     protected float ccdMotionThreshold = 0f;
     protected boolean checkCollideWith;
+    protected int worldArrayIndex = -1;
 
     public CollisionObject() {
         collisionFlags = CollisionFlags.STATIC_OBJECT;
@@ -155,6 +156,14 @@ public class CollisionObject {
         islandTag1 = islandTag;
     }
 
+    public int getWorldArrayIndex() {
+        return worldArrayIndex;
+    }
+
+    public void setWorldArrayIndex(int worldArrayIndex) {
+        this.worldArrayIndex = worldArrayIndex;
+    }
+
     public int getCompanionId() {
         return companionId;
     }
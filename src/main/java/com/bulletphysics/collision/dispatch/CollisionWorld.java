@@ -3,23 +3,43 @@ package com.bulletphysics.collision.dispatch;
 import com.bulletphysics.AabbUtil2;
 import com.bulletphysics.ArrayList;
 import com.bulletphysics.BulletGlobals;
+import com.bulletphysics.TaskScheduler;
 import com.bulletphysics.Transform;
 import com.bulletphysics.collision.broadphase.*;
-import com.bulletphysics.collision.narrowphase.ConvexCast;
 import com.bulletphysics.collision.narrowphase.ConvexCast.CastResult;
 import com.bulletphysics.collision.narrowphase.GjkConvexCast;
 import com.bulletphysics.collision.narrowphase.VoronoiSimplexSolver;
+import com.bulletphysics.collision.shapes.BoxShape;
 import com.bulletphysics.collision.shapes.CollisionShape;
 import com.bulletphysics.collision.shapes.ConvexShape;
+import com.bulletphysics.collision.shapes.SphereShape;
 
+import javax.vecmath.Matrix3;
 import javax.vecmath.Quaternion;
 import javax.vecmath.Vector3;
+import java.util.Arrays;
 
 public class CollisionWorld {
+    public static final int DEFAULT_AABB_CHUNK_SIZE = 256;
+    public static final int DEFAULT_RAY_CHUNK_SIZE = 256;
+    private static final ThreadLocal<SweepContext> sweepContexts = ThreadLocal.withInitial(SweepContext::new);
+    private static final ThreadLocal<RayContext> rayContexts = ThreadLocal.withInitial(RayContext::new);
+    private static final ThreadLocal<SingleRayCallback> rayCallbacks = ThreadLocal.withInitial(SingleRayCallback::new);
     protected final ArrayList<CollisionObject> collisionObjects = new ArrayList<>();
     protected final Dispatcher dispatcher1;
     protected final DispatcherInfo dispatchInfo = new DispatcherInfo();
     protected BroadPhaseInterface broadphasePairCache;
+    private final AabbWorker singleAabbWorker = new AabbWorker();
+    public int aabbChunkSize = DEFAULT_AABB_CHUNK_SIZE;
+    private TaskScheduler scheduler = null;
+    private CollisionObject[] aabbObjects = new CollisionObject[16];
+    private BroadPhaseProxy[] aabbProxies = new BroadPhaseProxy[16];
+    private boolean[] aabbValid = new boolean[16];
+    private float[] aabbMins = new float[16 * 3];
+    private float[] aabbMaxs = new float[16 * 3];
+    private AabbWorker[] aabbWorkers = {new AabbWorker()};
+    public int rayChunkSize = DEFAULT_RAY_CHUNK_SIZE;
+    private RayWorker[] rayWorkers = {new RayWorker()};
 
     public CollisionWorld(Dispatcher dispatcher, BroadPhaseInterface broadphasePairCache) {
         dispatcher1 = dispatcher;
@@ -28,6 +48,7 @@ public class CollisionWorld {
 
     public void addCollisionObject(CollisionObject collisionObject, short collisionFilterGroup, short collisionFilterMask) {
 
+        collisionObject.setWorldArrayIndex(collisionObjects.size());
         collisionObjects.add(collisionObject);
         var trans = collisionObject.getWorldTransform(new Transform());
         var minAabb = new Vector3();
@@ -66,29 +87,106 @@ public class CollisionWorld {
     }
 
     public void updateSingleAabb(CollisionObject colObj) {
-        Vector3 minAabb = new Vector3(), maxAabb = new Vector3();
-        var tmp = new Vector3();
-        var tmpTrans = new Transform();
-        colObj.getCollisionShape().getAabb(colObj.getWorldTransform(tmpTrans), minAabb, maxAabb);
-        var contactThreshold = new Vector3();
-        contactThreshold.set(BulletGlobals.CONTACT_BREAKING_THRESHOLD, BulletGlobals.CONTACT_BREAKING_THRESHOLD, BulletGlobals.CONTACT_BREAKING_THRESHOLD);
-        minAabb.sub(contactThreshold);
-        maxAabb.add(contactThreshold);
-        var bp = broadphasePairCache;
-        tmp.set(maxAabb).sub(minAabb);
-        if (colObj.isStaticObject() || tmp.lengthSquared() < 1e12f) {
-            bp.setAabb(colObj.getBroadphaseHandle(), minAabb, maxAabb);
+        if (computeAabb(colObj, singleAabbWorker)) {
+            broadphasePairCache.setAabb(colObj.getBroadphaseHandle(), singleAabbWorker.aabbMin, singleAabbWorker.aabbMax);
         } else {
             colObj.setActivationState(CollisionObject.DISABLE_SIMULATION);
         }
     }
 
     public void updateAabbs() {
-        for (CollisionObject colObj : collisionObjects) {
+        var count = 0;
+        for (int i = 0, n = collisionObjects.size(); i < n; i++) {
+            var colObj = collisionObjects.get(i);
             if (colObj.isActive()) {
-                updateSingleAabb(colObj);
+                if (count == aabbObjects.length) {
+                    growAabbBuffers(count << 1);
+                }
+                aabbObjects[count++] = colObj;
             }
         }
+        var chunkSize = Math.max(1, aabbChunkSize);
+        var chunks = (count + chunkSize - 1) / chunkSize;
+        if (scheduler != null && chunks > 1) {
+            if (aabbWorkers.length < chunks) {
+                var workers = Arrays.copyOf(aabbWorkers, chunks);
+                for (var i = aabbWorkers.length; i < chunks; i++) {
+                    workers[i] = new AabbWorker();
+                }
+                aabbWorkers = workers;
+            }
+            var total = count;
+            scheduler.parallelFor(chunks, chunk -> computeAabbs(aabbWorkers[chunk], chunk * chunkSize, Math.min(total, (chunk + 1) * chunkSize)));
+        } else {
+            computeAabbs(aabbWorkers[0], 0, count);
+        }
+        var valid = 0;
+        for (var i = 0; i < count; i++) {
+            var colObj = aabbObjects[i];
+            aabbObjects[i] = null;
+            if (!aabbValid[i]) {
+                colObj.setActivationState(CollisionObject.DISABLE_SIMULATION);
+                continue;
+            }
+            if (valid != i) {
+                System.arraycopy(aabbMins, i * 3, aabbMins, valid * 3, 3);
+                System.arraycopy(aabbMaxs, i * 3, aabbMaxs, valid * 3, 3);
+            }
+            aabbProxies[valid++] = colObj.getBroadphaseHandle();
+        }
+        broadphasePairCache.setAabbs(aabbProxies, aabbMins, aabbMaxs, valid);
+        Arrays.fill(aabbProxies, 0, valid, null);
+    }
+
+    public TaskScheduler getTaskScheduler() {
+        return scheduler;
+    }
+
+    public void setTaskScheduler(TaskScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    private void computeAabbs(AabbWorker worker, int from, int to) {
+        for (var i = from; i < to; i++) {
+            var valid = computeAabb(aabbObjects[i], worker);
+            aabbValid[i] = valid;
+            if (valid) {
+                aabbMins[i * 3] = worker.aabbMin.x;
+                aabbMins[i * 3 + 1] = worker.aabbMin.y;
+                aabbMins[i * 3 + 2] = worker.aabbMin.z;
+                aabbMaxs[i * 3] = worker.aabbMax.x;
+                aabbMaxs[i * 3 + 1] = worker.aabbMax.y;
+                aabbMaxs[i * 3 + 2] = worker.aabbMax.z;
+            }
+        }
+    }
+
+    private void growAabbBuffers(int capacity) {
+        aabbObjects = Arrays.copyOf(aabbObjects, capacity);
+        aabbProxies = Arrays.copyOf(aabbProxies, capacity);
+        aabbValid = Arrays.copyOf(aabbValid, capacity);
+        aabbMins = Arrays.copyOf(aabbMins, capacity * 3);
+        aabbMaxs = Arrays.copyOf(aabbMaxs, capacity * 3);
+    }
+
+    private boolean computeAabb(CollisionObject colObj, AabbWorker worker) {
+        var minAabb = worker.aabbMin;
+        var maxAabb = worker.aabbMax;
+        colObj.getCollisionShape().getAabb(colObj.getWorldTransform(worker.trans), minAabb, maxAabb);
+        if (dispatchInfo.useSpeculativeContacts && !colObj.isStaticOrKinematicObject()) {
+            colObj.getCollisionShape().getAabb(colObj.getInterpolationWorldTransform(worker.trans), worker.sweptMin, worker.sweptMax);
+            var sweptMin = worker.sweptMin;
+            var sweptMax = worker.sweptMax;
+            minAabb.set(Math.min(minAabb.x, sweptMin.x), Math.min(minAabb.y, sweptMin.y), Math.min(minAabb.z, sweptMin.z));
+            maxAabb.set(Math.max(maxAabb.x, sweptMax.x), Math.max(maxAabb.y, sweptMax.y), Math.max(maxAabb.z, sweptMax.z));
+        }
+        var threshold = BulletGlobals.CONTACT_BREAKING_THRESHOLD;
+        minAabb.set(minAabb.x - threshold, minAabb.y - threshold, minAabb.z - threshold);
+        maxAabb.set(maxAabb.x + threshold, maxAabb.y + threshold, maxAabb.z + threshold);
+        var dx = maxAabb.x - minAabb.x;
+        var dy = maxAabb.y - minAabb.y;
+        var dz = maxAabb.z - minAabb.z;
+        return colObj.isStaticObject() || dx * dx + dy * dy + dz * dz < 1e12f;
     }
 
     public int getNumCollisionObjects() {
@@ -97,17 +195,17 @@ public class CollisionWorld {
 
     public static void objectQuerySingle(ConvexShape castShape, Transform convexFromTrans, Transform convexToTrans, CollisionObject collisionObject, CollisionShape collisionShape, Transform colObjWorldTransform, ConvexResultCallback resultCallback, float allowedPenetration) {
         if (collisionShape.isConvex()) {
-            var castResult = new CastResult();
+            var context = sweepContexts.get();
+            var castResult = context.castResult;
             castResult.allowedPenetration = allowedPenetration;
             castResult.fraction = 1f;
             var convexShape = (ConvexShape) collisionShape;
-            var simplexSolver = new VoronoiSimplexSolver();
-            if (((ConvexCast) new GjkConvexCast(castShape, convexShape, simplexSolver)).calcTimeOfImpact(convexFromTrans, convexToTrans, colObjWorldTransform, colObjWorldTransform, castResult)) {
+            context.convexCaster.init(castShape, convexShape);
+            if (context.convexCaster.calcTimeOfImpact(convexFromTrans, convexToTrans, colObjWorldTransform, colObjWorldTransform, castResult)) {
                 if (castResult.normal.lengthSquared() > 0.0001f) {
                     if (castResult.fraction < resultCallback.closestHitFraction) {
                         castResult.normal.normalize();
-                        var localConvexResult = new LocalConvexResult(collisionObject, null, castResult.normal, castResult.hitPoint, castResult.fraction);
-                        resultCallback.addSingleResult(localConvexResult, true);
+                        resultCallback.addSingleResult(context.convexResult.set(collisionObject, null, castResult.normal, castResult.hitPoint, castResult.fraction), true);
                     }
                 }
             }
@@ -115,34 +213,137 @@ public class CollisionWorld {
     }
 
     public void convexSweepTest(ConvexShape castShape, Transform convexFromWorld, Transform convexToWorld, ConvexResultCallback resultCallback) {
-        var convexFromTrans = new Transform();
-        var convexToTrans = new Transform();
-        convexFromTrans.set(convexFromWorld);
-        convexToTrans.set(convexToWorld);
-        var castShapeAabbMin = new Vector3();
-        var castShapeAabbMax = new Vector3();
-        var linVel = new Vector3();
-        var angVel = new Vector3();
-        Transform.calculateVelocity(convexFromTrans, convexToTrans, 1f, linVel, angVel);
-        var R = new Transform();
-        R.identity();
-        R.setRotation(convexFromTrans.getRotation(new Quaternion()));
-        castShape.calculateTemporalAabb(R, linVel, angVel, 1f, castShapeAabbMin, castShapeAabbMax);
-        var tmpTrans = new Transform();
-        var collisionObjectAabbMin = new Vector3();
-        var collisionObjectAabbMax = new Vector3();
-        var hitLambda = new float[1];
-        for (CollisionObject collisionObject : collisionObjects) {
-            if (resultCallback.needsCollision(collisionObject.getBroadphaseHandle())) {
-                collisionObject.getWorldTransform(tmpTrans);
-                collisionObject.getCollisionShape().getAabb(tmpTrans, collisionObjectAabbMin, collisionObjectAabbMax);
-                collisionObjectAabbMin.add(castShapeAabbMin);
-                collisionObjectAabbMax.add(castShapeAabbMax);
-                hitLambda[0] = 1f;
-                var hitNormal = new Vector3();
-                if (AabbUtil2.rayAabb(convexFromWorld.origin, convexToWorld.origin, collisionObjectAabbMin, collisionObjectAabbMax, hitLambda, hitNormal)) {
-                    objectQuerySingle(castShape, convexFromTrans, convexToTrans, collisionObject, collisionObject.getCollisionShape(), tmpTrans, resultCallback, getDispatchInfo().allowedCcdPenetration);
+        var context = sweepContexts.get();
+        var convexFromTrans = context.convexFromTrans.set(convexFromWorld);
+        var convexToTrans = context.convexToTrans.set(convexToWorld);
+        var castShapeAabbMin = context.castShapeAabbMin;
+        var castShapeAabbMax = context.castShapeAabbMax;
+        Transform.calculateVelocity(convexFromTrans, convexToTrans, 1f, context.linVel, context.angVel, context.tmpBasis, context.rotation);
+        var R = context.R.identity();
+        R.setRotation(convexFromTrans.getRotation(context.rotation));
+        castShape.calculateTemporalAabb(R, context.linVel, context.angVel, 1f, castShapeAabbMin, castShapeAabbMax);
+        var sweepCallback = context.sweepCallback;
+        sweepCallback.init(castShape, convexFromTrans, convexToTrans, castShapeAabbMin, castShapeAabbMax, resultCallback, getDispatchInfo().allowedCcdPenetration);
+        broadphasePairCache.rayTest(convexFromTrans.origin, convexToTrans.origin, sweepCallback, castShapeAabbMin, castShapeAabbMax);
+        sweepCallback.castShape = null;
+        sweepCallback.resultCallback = null;
+    }
+
+    public static void rayTestSingle(Transform rayFromTrans, Transform rayToTrans, CollisionObject collisionObject, CollisionShape collisionShape, Transform colObjWorldTransform, RayResultCallback resultCallback) {
+        rayTestSingle(rayFromTrans, rayToTrans, collisionObject, collisionShape, colObjWorldTransform, resultCallback, rayContexts.get());
+    }
+
+    private static void rayTestSingle(Transform rayFromTrans, Transform rayToTrans, CollisionObject collisionObject, CollisionShape collisionShape, Transform colObjWorldTransform, RayResultCallback resultCallback, RayContext rayContext) {
+        if (collisionShape instanceof SphereShape sphere) {
+            rayTestSphere(rayFromTrans.origin, rayToTrans.origin, collisionObject, sphere, colObjWorldTransform, resultCallback, rayContext);
+        } else if (collisionShape instanceof BoxShape box) {
+            rayTestBox(rayFromTrans.origin, rayToTrans.origin, collisionObject, box, colObjWorldTransform, resultCallback, rayContext);
+        } else if (collisionShape.isConvex()) {
+            var context = sweepContexts.get();
+            var castResult = context.castResult;
+            castResult.allowedPenetration = 0f;
+            castResult.fraction = resultCallback.closestHitFraction;
+            var convexShape = (ConvexShape) collisionShape;
+            context.convexCaster.init(context.pointShape, convexShape);
+            if (context.convexCaster.calcTimeOfImpact(rayFromTrans, rayToTrans, colObjWorldTransform, colObjWorldTransform, castResult)) {
+                if (castResult.normal.lengthSquared() > 0.0001f && castResult.fraction < resultCallback.closestHitFraction) {
+                    castResult.normal.normalize();
+                    resultCallback.addSingleResult(rayContext.rayResult.set(collisionObject, null, castResult.normal, castResult.fraction), true);
+                }
+            }
+        }
+    }
+
+    private static void rayTestSphere(Vector3 rayFrom, Vector3 rayTo, CollisionObject collisionObject, SphereShape sphere, Transform colObjWorldTransform, RayResultCallback resultCallback, RayContext rayContext) {
+        var radius = sphere.getRadius();
+        var rayDelta = rayContext.rayDelta.set(rayTo).sub(rayFrom);
+        var m = rayContext.offset.set(rayFrom).sub(colObjWorldTransform.origin);
+        var a = rayDelta.dot(rayDelta);
+        var b = m.dot(rayDelta);
+        var c = m.dot(m) - radius * radius;
+        if (a == 0f || c <= 0f || b >= 0f) {
+            return;
+        }
+        var discriminant = b * b - a * c;
+        if (discriminant < 0f) {
+            return;
+        }
+        var fraction = (-b - (float) Math.sqrt(discriminant)) / a;
+        if (fraction < 0f || fraction >= resultCallback.closestHitFraction) {
+            return;
+        }
+        var hitNormal = m.scaleAdd(fraction, rayDelta, m);
+        if (hitNormal.lengthSquared() == 0f) {
+            return;
+        }
+        hitNormal.normalize();
+        resultCallback.addSingleResult(rayContext.rayResult.set(collisionObject, null, hitNormal, fraction), true);
+    }
+
+    private static void rayTestBox(Vector3 rayFrom, Vector3 rayTo, CollisionObject collisionObject, BoxShape box, Transform colObjWorldTransform, RayResultCallback resultCallback, RayContext rayContext) {
+        var localFrom = rayContext.localFrom;
+        var localTo = rayContext.localTo;
+        colObjWorldTransform.invXform(rayFrom, localFrom);
+        colObjWorldTransform.invXform(rayTo, localTo);
+        var halfExtents = box.getHalfExtentsWithMargin(rayContext.halfExtents);
+        var hitLambda = rayContext.hitLambda;
+        hitLambda[0] = resultCallback.closestHitFraction;
+        var hitNormal = rayContext.hitNormal;
+        if (!AabbUtil2.rayAabb(localFrom, localTo, halfExtents, hitLambda, hitNormal) || hitNormal.lengthSquared() == 0f) {
+            return;
+        }
+        if (hitLambda[0] >= resultCallback.closestHitFraction) {
+            return;
+        }
+        hitNormal.mul(-1f).transform(colObjWorldTransform.basis);
+        resultCallback.addSingleResult(rayContext.rayResult.set(collisionObject, null, hitNormal, hitLambda[0]), true);
+    }
+
+    public void rayTest(Vector3 rayFromWorld, Vector3 rayToWorld, RayResultCallback resultCallback) {
+        var rayCallback = rayCallbacks.get();
+        rayCallback.init(rayFromWorld, rayToWorld, resultCallback);
+        broadphasePairCache.rayTest(rayFromWorld, rayToWorld, rayCallback, rayCallback.zero, rayCallback.zero);
+        rayCallback.resultCallback = null;
+    }
+
+    public void rayTestBatch(float[] rayFroms, float[] rayTos, int count, float[] hitFractions, float[] hitNormals, int[] hitObjects) {
+        var chunkSize = Math.max(1, rayChunkSize);
+        var chunks = (count + chunkSize - 1) / chunkSize;
+        if (scheduler != null && chunks > 1) {
+            if (rayWorkers.length < chunks) {
+                var workers = Arrays.copyOf(rayWorkers, chunks);
+                for (var i = rayWorkers.length; i < chunks; i++) {
+                    workers[i] = new RayWorker();
                 }
+                rayWorkers = workers;
+            }
+            scheduler.parallelFor(chunks, chunk -> rayTestRange(rayWorkers[chunk], rayFroms, rayTos, chunk * chunkSize, Math.min(count, (chunk + 1) * chunkSize), hitFractions, hitNormals, hitObjects));
+        } else {
+            rayTestRange(rayWorkers[0], rayFroms, rayTos, 0, count, hitFractions, hitNormals, hitObjects);
+        }
+    }
+
+    private void rayTestRange(RayWorker worker, float[] rayFroms, float[] rayTos, int from, int to, float[] hitFractions, float[] hitNormals, int[] hitObjects) {
+        var result = worker.result;
+        for (var i = from; i < to; i++) {
+            var j = i * 3;
+            worker.rayFrom.set(rayFroms[j], rayFroms[j + 1], rayFroms[j + 2]);
+            worker.rayTo.set(rayTos[j], rayTos[j + 1], rayTos[j + 2]);
+            result.closestHitFraction = 1f;
+            result.collisionObject = null;
+            worker.rayCallback.init(worker.rayFrom, worker.rayTo, result);
+            broadphasePairCache.rayTest(worker.rayFrom, worker.rayTo, worker.rayCallback, worker.zero, worker.zero);
+            hitFractions[i] = result.closestHitFraction;
+            if (result.collisionObject != null) {
+                hitNormals[j] = result.hitNormalWorld.x;
+                hitNormals[j + 1] = result.hitNormalWorld.y;
+                hitNormals[j + 2] = result.hitNormalWorld.z;
+                hitObjects[i] = result.collisionObject.getWorldArrayIndex();
+            } else {
+                hitNormals[j] = 0f;
+                hitNormals[j + 1] = 0f;
+                hitNormals[j + 2] = 0f;
+                hitObjects[i] = -1;
             }
         }
     }
@@ -155,18 +356,26 @@ public class CollisionWorld {
     }
 
     public static class LocalConvexResult {
-        public final CollisionObject hitCollisionObject;
-        public final LocalShapeInfo localShapeInfo;
+        public CollisionObject hitCollisionObject;
+        public LocalShapeInfo localShapeInfo;
         public final Vector3 hitNormalLocal = new Vector3();
         public final Vector3 hitPointLocal = new Vector3();
-        public final float hitFraction;
+        public float hitFraction;
+
+        public LocalConvexResult() {
+        }
 
         public LocalConvexResult(CollisionObject hitCollisionObject, LocalShapeInfo localShapeInfo, Vector3 hitNormalLocal, Vector3 hitPointLocal, float hitFraction) {
+            set(hitCollisionObject, localShapeInfo, hitNormalLocal, hitPointLocal, hitFraction);
+        }
+
+        public LocalConvexResult set(CollisionObject hitCollisionObject, LocalShapeInfo localShapeInfo, Vector3 hitNormalLocal, Vector3 hitPointLocal, float hitFraction) {
             this.hitCollisionObject = hitCollisionObject;
             this.localShapeInfo = localShapeInfo;
             this.hitNormalLocal.set(hitNormalLocal);
             this.hitPointLocal.set(hitPointLocal);
             this.hitFraction = hitFraction;
+            return this;
         }
     }
 
@@ -223,4 +432,227 @@ public class CollisionWorld {
             return convexResult.hitFraction;
         }
     }
+
+    public static class LocalRayResult {
+        public CollisionObject collisionObject;
+        public LocalShapeInfo localShapeInfo;
+        public final Vector3 hitNormalLocal = new Vector3();
+        public float hitFraction;
+
+        public LocalRayResult() {
+        }
+
+        public LocalRayResult(CollisionObject collisionObject, LocalShapeInfo localShapeInfo, Vector3 hitNormalLocal, float hitFraction) {
+            set(collisionObject, localShapeInfo, hitNormalLocal, hitFraction);
+        }
+
+        public LocalRayResult set(CollisionObject collisionObject, LocalShapeInfo localShapeInfo, Vector3 hitNormalLocal, float hitFraction) {
+            this.collisionObject = collisionObject;
+            this.localShapeInfo = localShapeInfo;
+            this.hitNormalLocal.set(hitNormalLocal);
+            this.hitFraction = hitFraction;
+            return this;
+        }
+    }
+
+    public static abstract class RayResultCallback {
+        public float closestHitFraction = 1f;
+        public CollisionObject collisionObject;
+        public short collisionFilterGroup = CollisionFilterGroups.DEFAULT_FILTER;
+        public short collisionFilterMask = CollisionFilterGroups.ALL_FILTER;
+
+        public boolean hasHit() {
+            return collisionObject != null;
+        }
+
+        public boolean needsCollision(BroadPhaseProxy proxy0) {
+            var collides = (proxy0.collisionFilterGroup & collisionFilterMask & 0xFFFF) != 0;
+            collides = collides && (collisionFilterGroup & proxy0.collisionFilterMask & 0xFFFF) != 0;
+            return collides;
+        }
+
+        public abstract float addSingleResult(LocalRayResult rayResult, boolean normalInWorldSpace);
+    }
+
+    public static class ClosestRayResultCallback extends RayResultCallback {
+        public final Vector3 rayFromWorld = new Vector3();
+        public final Vector3 rayToWorld = new Vector3();
+        public final Vector3 hitNormalWorld = new Vector3();
+        public final Vector3 hitPointWorld = new Vector3();
+
+        public ClosestRayResultCallback(Vector3 rayFromWorld, Vector3 rayToWorld) {
+            this.rayFromWorld.set(rayFromWorld);
+            this.rayToWorld.set(rayToWorld);
+        }
+
+        @Override
+        public float addSingleResult(LocalRayResult rayResult, boolean normalInWorldSpace) {
+            closestHitFraction = rayResult.hitFraction;
+            collisionObject = rayResult.collisionObject;
+            hitNormalWorld.set(rayResult.hitNormalLocal);
+            if (!normalInWorldSpace) {
+                hitNormalWorld.transform(collisionObject.getWorldTransform(new Transform()).basis);
+            }
+            hitPointWorld.interpolate(closestHitFraction, rayFromWorld, rayToWorld);
+            return closestHitFraction;
+        }
+    }
+
+    public static class AllHitsRayResultCallback extends RayResultCallback {
+        public final Vector3 rayFromWorld = new Vector3();
+        public final Vector3 rayToWorld = new Vector3();
+        public final ArrayList<CollisionObject> collisionObjects = new ArrayList<>();
+        public final ArrayList<Vector3> hitNormalWorld = new ArrayList<>();
+        public final ArrayList<Vector3> hitPointWorld = new ArrayList<>();
+        public final ArrayList<Float> hitFractions = new ArrayList<>();
+
+        public AllHitsRayResultCallback(Vector3 rayFromWorld, Vector3 rayToWorld) {
+            this.rayFromWorld.set(rayFromWorld);
+            this.rayToWorld.set(rayToWorld);
+        }
+
+        @Override
+        public float addSingleResult(LocalRayResult rayResult, boolean normalInWorldSpace) {
+            collisionObject = rayResult.collisionObject;
+            collisionObjects.add(rayResult.collisionObject);
+            var hitNormal = new Vector3(rayResult.hitNormalLocal);
+            if (!normalInWorldSpace) {
+                hitNormal.transform(collisionObject.getWorldTransform(new Transform()).basis);
+            }
+            hitNormalWorld.add(hitNormal);
+            hitPointWorld.add(new Vector3().interpolate(rayResult.hitFraction, rayFromWorld, rayToWorld));
+            hitFractions.add(rayResult.hitFraction);
+            return closestHitFraction;
+        }
+    }
+
+    private static class SingleRayCallback extends BroadPhaseRayCallback {
+        private final Transform rayFromTrans = new Transform().identity();
+        private final Transform rayToTrans = new Transform().identity();
+        private final Transform tmpTrans = new Transform();
+        private final RayContext rayContext = new RayContext();
+        private final Vector3 zero = new Vector3();
+        private RayResultCallback resultCallback;
+
+        public void init(Vector3 rayFromWorld, Vector3 rayToWorld, RayResultCallback resultCallback) {
+            rayFromTrans.origin.set(rayFromWorld);
+            rayToTrans.origin.set(rayToWorld);
+            this.resultCallback = resultCallback;
+            lambdaMax = resultCallback.closestHitFraction;
+        }
+
+        @Override
+        public void process(BroadPhaseProxy proxy) {
+            if (!resultCallback.needsCollision(proxy)) {
+                return;
+            }
+            var collisionObject = (CollisionObject) proxy.clientObject;
+            collisionObject.getWorldTransform(tmpTrans);
+            rayTestSingle(rayFromTrans, rayToTrans, collisionObject, collisionObject.getCollisionShape(), tmpTrans, resultCallback, rayContext);
+            lambdaMax = resultCallback.closestHitFraction;
+        }
+    }
+
+    private static class SingleSweepCallback extends BroadPhaseRayCallback {
+        private ConvexShape castShape;
+        private Transform convexFromTrans;
+        private Transform convexToTrans;
+        private Vector3 castShapeAabbMin;
+        private Vector3 castShapeAabbMax;
+        private ConvexResultCallback resultCallback;
+        private float allowedPenetration;
+        private final Transform tmpTrans = new Transform();
+        private final Vector3 collisionObjectAabbMin = new Vector3();
+        private final Vector3 collisionObjectAabbMax = new Vector3();
+        private final Vector3 rayDelta = new Vector3();
+
+        public void init(ConvexShape castShape, Transform convexFromTrans, Transform convexToTrans, Vector3 castShapeAabbMin, Vector3 castShapeAabbMax, ConvexResultCallback resultCallback, float allowedPenetration) {
+            this.castShape = castShape;
+            this.convexFromTrans = convexFromTrans;
+            this.convexToTrans = convexToTrans;
+            this.castShapeAabbMin = castShapeAabbMin;
+            this.castShapeAabbMax = castShapeAabbMax;
+            this.resultCallback = resultCallback;
+            this.allowedPenetration = allowedPenetration;
+            rayDelta.set(convexToTrans.origin).sub(convexFromTrans.origin);
+            lambdaMax = resultCallback.closestHitFraction;
+        }
+
+        @Override
+        public void process(BroadPhaseProxy proxy) {
+            if (!resultCallback.needsCollision(proxy)) {
+                return;
+            }
+            var collisionObject = (CollisionObject) proxy.clientObject;
+            collisionObject.getWorldTransform(tmpTrans);
+            collisionObject.getCollisionShape().getAabb(tmpTrans, collisionObjectAabbMin, collisionObjectAabbMax);
+            collisionObjectAabbMin.add(castShapeAabbMin);
+            collisionObjectAabbMax.add(castShapeAabbMax);
+            if (AabbUtil2.rayAabb2(convexFromTrans.origin, rayDelta, collisionObjectAabbMin.x, collisionObjectAabbMin.y, collisionObjectAabbMin.z, collisionObjectAabbMax.x, collisionObjectAabbMax.y, collisionObjectAabbMax.z, 1f)) {
+                objectQuerySingle(castShape, convexFromTrans, convexToTrans, collisionObject, collisionObject.getCollisionShape(), tmpTrans, resultCallback, allowedPenetration);
+                lambdaMax = resultCallback.closestHitFraction;
+            }
+        }
+    }
+
+    private static class BatchRayResultCallback extends RayResultCallback {
+        public final Vector3 hitNormalWorld = new Vector3();
+        private final Transform tmpTrans = new Transform();
+
+        @Override
+        public float addSingleResult(LocalRayResult rayResult, boolean normalInWorldSpace) {
+            closestHitFraction = rayResult.hitFraction;
+            collisionObject = rayResult.collisionObject;
+            hitNormalWorld.set(rayResult.hitNormalLocal);
+            if (!normalInWorldSpace) {
+                hitNormalWorld.transform(collisionObject.getWorldTransform(tmpTrans).basis);
+            }
+            return closestHitFraction;
+        }
+    }
+
+    private static class RayWorker {
+        public final Vector3 rayFrom = new Vector3();
+        public final Vector3 rayTo = new Vector3();
+        public final Vector3 zero = new Vector3();
+        public final SingleRayCallback rayCallback = new SingleRayCallback();
+        public final BatchRayResultCallback result = new BatchRayResultCallback();
+    }
+
+    private static class RayContext {
+        public final Vector3 rayDelta = new Vector3();
+        public final Vector3 offset = new Vector3();
+        public final Vector3 localFrom = new Vector3();
+        public final Vector3 localTo = new Vector3();
+        public final Vector3 halfExtents = new Vector3();
+        public final Vector3 hitNormal = new Vector3();
+        public final float[] hitLambda = new float[1];
+        public final LocalRayResult rayResult = new LocalRayResult();
+    }
+
+    private static class SweepContext {
+        public final CastResult castResult = new CastResult();
+        public final VoronoiSimplexSolver simplexSolver = new VoronoiSimplexSolver();
+        public final GjkConvexCast convexCaster = new GjkConvexCast(null, null, simplexSolver);
+        public final SphereShape pointShape = new SphereShape(0f);
+        public final LocalConvexResult convexResult = new LocalConvexResult();
+        public final Transform convexFromTrans = new Transform();
+        public final Transform convexToTrans = new Transform();
+        public final Transform R = new Transform();
+        public final Vector3 castShapeAabbMin = new Vector3();
+        public final Vector3 castShapeAabbMax = new Vector3();
+        public final Vector3 linVel = new Vector3();
+        public final Vector3 angVel = new Vector3();
+        public final Matrix3 tmpBasis = new Matrix3();
+        public final Quaternion rotation = new Quaternion();
+        public final SingleSweepCallback sweepCallback = new SingleSweepCallback();
+    }
+
+    private static class AabbWorker {
+        public final Transform trans = new Transform();
+        public final Vector3 aabbMin = new Vector3();
+        public final Vector3 aabbMax = new Vector3();
+        public final Vector3 sweptMin = new Vector3();
+        public final Vector3 sweptMax = new Vector3();
+    }
 }
@@ -6,16 +6,25 @@ import com.bulletphysics.collision.narrowphase.ConvexPenetrationDepthSolver;
 import com.bulletphysics.collision.narrowphase.DiscreteCollisionDetectorInterface.ClosestPointInput;
 import com.bulletphysics.collision.narrowphase.GjkPairDetector;
 import com.bulletphysics.collision.narrowphase.PersistentManifold;
+import com.bulletphysics.collision.narrowphase.PointCollector;
+import com.bulletphysics.collision.narrowphase.PolyhedralContactClipping;
 import com.bulletphysics.collision.narrowphase.SimplexSolverInterface;
 import com.bulletphysics.collision.shapes.ConvexShape;
+import com.bulletphysics.collision.shapes.PolyhedralConvexShape;
 
 import java.util.List;
 
 public class ConvexConvexAlgorithm extends CollisionAlgorithm {
     private final GjkPairDetector gjkPairDetector = new GjkPairDetector();
+    private final ClosestPointInput input = new ClosestPointInput();
     public boolean ownManifold;
     public PersistentManifold manifoldPtr;
     public boolean lowLevelOfDetail;
+    private PolyhedralContactClipping clipping;
+    private PointCollector pointCollector;
+
+    public ConvexConvexAlgorithm() {
+    }
 
     public ConvexConvexAlgorithm(PersistentManifold mf, CollisionAlgorithmConstructionInfo ci, SimplexSolverInterface simplexSolver, ConvexPenetrationDepthSolver pdSolver) {
         init(mf, ci, simplexSolver, pdSolver);
@@ -33,32 +42,85 @@ public class ConvexConvexAlgorithm extends CollisionAlgorithm {
     public void destroy() {
         if (ownManifold) {
             if (manifoldPtr != null) dispatcher.releaseManifold(manifoldPtr);
-            manifoldPtr = null;
         }
+        manifoldPtr = null;
+        gjkPairDetector.setMinkowskiA(null);
+        gjkPairDetector.setMinkowskiB(null);
+    }
+
+    public void setSolvers(SimplexSolverInterface simplexSolver, ConvexPenetrationDepthSolver pdSolver) {
+        gjkPairDetector.setSimplexSolver(simplexSolver);
+        gjkPairDetector.setPenetrationDepthSolver(pdSolver);
     }
 
     @Override
-    public void processCollision(CollisionObject body0, CollisionObject body1, ManifoldResult resultOut) {
+    public void prepareCollision(CollisionObject body0, CollisionObject body1) {
         if (manifoldPtr == null) {
             manifoldPtr = dispatcher.getNewManifold(body0, body1);
             ownManifold = true;
         }
+    }
+
+    @Override
+    public void processCollision(CollisionObject body0, CollisionObject body1, ManifoldResult resultOut) {
+        prepareCollision(body0, body1);
         resultOut.setPersistentManifold(manifoldPtr);
         var min0 = (ConvexShape) body0.getCollisionShape();
         var min1 = (ConvexShape) body1.getCollisionShape();
-        var input = new ClosestPointInput();
         gjkPairDetector.setMinkowskiA(min0);
         gjkPairDetector.setMinkowskiB(min1);
-        input.maximumDistanceSquared = min0.getMargin() + min1.getMargin() + manifoldPtr.getContactBreakingThreshold();
+        gjkPairDetector.useCachedSeparatingAxis = resultOut.isGjkWarmStart();
+        var threshold = manifoldPtr.getContactBreakingThreshold() + resultOut.getSpeculativeMargin();
+        manifoldPtr.setContactProcessingThreshold(threshold);
+        input.maximumDistanceSquared = min0.getMargin() + min1.getMargin() + threshold;
         input.maximumDistanceSquared *= input.maximumDistanceSquared;
         body0.getWorldTransform(input.transformA);
         body1.getWorldTransform(input.transformB);
-        gjkPairDetector.getClosestPoints(input, resultOut);
+        if (min0 instanceof PolyhedralConvexShape && min1 instanceof PolyhedralConvexShape) {
+            collidePolyhedra((PolyhedralConvexShape) min0, (PolyhedralConvexShape) min1, threshold, resultOut);
+        } else {
+            gjkPairDetector.getClosestPoints(input, resultOut);
+        }
         if (ownManifold) resultOut.refreshContactPoints();
     }
 
+    private void collidePolyhedra(PolyhedralConvexShape shape0, PolyhedralConvexShape shape1, float threshold, ManifoldResult resultOut) {
+        if (clipping == null) {
+            clipping = new PolyhedralContactClipping();
+            pointCollector = new PointCollector();
+        }
+        pointCollector.reset();
+        gjkPairDetector.getClosestPoints(input, pointCollector);
+        if (!pointCollector.hasResult) {
+            return;
+        }
+        if (clipping.clipHulls(shape0, input.transformA, shape1, input.transformB, pointCollector.normalOnBInWorld, pointCollector.distance, threshold, resultOut) == 0) {
+            resultOut.addContactPoint(pointCollector.normalOnBInWorld, pointCollector.pointInWorld, pointCollector.distance);
+        }
+    }
+
     @Override
     public void getAllContactManifolds(List<PersistentManifold> manifoldArray) {
         if (manifoldPtr != null && ownManifold) manifoldArray.add(manifoldPtr);
     }
+
+    public static class CreateFunc extends CollisionAlgorithmCreateFunc {
+        private final SimplexSolverInterface simplexSolver;
+        private final ConvexPenetrationDepthSolver pdSolver;
+
+        public CreateFunc(SimplexSolverInterface simplexSolver, ConvexPenetrationDepthSolver pdSolver) {
+            this.simplexSolver = simplexSolver;
+            this.pdSolver = pdSolver;
+        }
+
+        @Override
+        protected CollisionAlgorithm newAlgorithm() {
+            return new ConvexConvexAlgorithm();
+        }
+
+        @Override
+        protected void initAlgorithm(CollisionAlgorithm algo, CollisionAlgorithmConstructionInfo ci, CollisionObject body0, CollisionObject body1) {
+            ((ConvexConvexAlgorithm) algo).init(ci.manifold, ci, simplexSolver, pdSolver);
+        }
+    }
 }
@@ -14,7 +14,7 @@ public class DefaultNearCallback extends NearCallback {
                 collisionPair.algorithm = dispatcher.findAlgorithm(colObj0, colObj1);
             }
             if (collisionPair.algorithm != null) {
-                contactPointResult.init(colObj0, colObj1);
+                contactPointResult.init(colObj0, colObj1, dispatchInfo);
                 collisionPair.algorithm.processCollision(colObj0, colObj1, contactPointResult);
             }
         }
@@ -1,6 +1,7 @@
 package com.bulletphysics.collision.dispatch;
 
 import com.bulletphysics.Transform;
+import com.bulletphysics.collision.broadphase.DispatcherInfo;
 import com.bulletphysics.collision.narrowphase.DiscreteCollisionDetectorInterface;
 import com.bulletphysics.collision.narrowphase.ManifoldPoint;
 import com.bulletphysics.collision.narrowphase.PersistentManifold;
@@ -13,6 +14,11 @@ public class ManifoldResult extends DiscreteCollisionDetectorInterface.Result {
     private final Transform rootTransB = new Transform();
     private CollisionObject body0;
     private CollisionObject body1;
+    private float speculativeMargin;
+    private boolean gjkWarmStart;
+    private final Transform tmpTrans = new Transform();
+    private final Vector3 relativeMotion = new Vector3();
+    private final Vector3 tmp = new Vector3();
 
     public ManifoldResult() {
     }
@@ -22,6 +28,30 @@ public class ManifoldResult extends DiscreteCollisionDetectorInterface.Result {
         this.body1 = body1;
         body0.getWorldTransform(rootTransA);
         body1.getWorldTransform(rootTransB);
+        speculativeMargin = 0f;
+        gjkWarmStart = false;
+    }
+
+    public void init(CollisionObject body0, CollisionObject body1, DispatcherInfo dispatchInfo) {
+        init(body0, body1);
+        gjkWarmStart = dispatchInfo.useGjkWarmStart;
+        if (dispatchInfo.useSpeculativeContacts) {
+            relativeMotion.set(body0.getInterpolationWorldTransform(tmpTrans).origin).sub(rootTransA.origin);
+            relativeMotion.sub(body1.getInterpolationWorldTransform(tmpTrans).origin).add(rootTransB.origin);
+            speculativeMargin = relativeMotion.length() + getAngularMotion(body0, dispatchInfo.timeStep) + getAngularMotion(body1, dispatchInfo.timeStep);
+        }
+    }
+
+    private float getAngularMotion(CollisionObject body, float timeStep) {
+        return body.getInterpolationAngularVelocity(tmp).length() * body.getCollisionShape().getAngularMotionDisc() * timeStep;
+    }
+
+    public float getSpeculativeMargin() {
+        return speculativeMargin;
+    }
+
+    public boolean isGjkWarmStart() {
+        return gjkWarmStart;
     }
 
     public PersistentManifold getPersistentManifold() {
@@ -34,7 +64,7 @@ public class ManifoldResult extends DiscreteCollisionDetectorInterface.Result {
 
     public void addContactPoint(Vector3 normalOnBInWorld, Vector3 pointInWorld, float depth) {
 
-        if (depth > manifoldPtr.getContactBreakingThreshold()) {
+        if (depth > manifoldPtr.getContactProcessingThreshold()) {
             return;
         }
         var isSwapped = manifoldPtr.getBody0() != body0;
@@ -0,0 +1,116 @@
+package com.bulletphysics.collision.dispatch;
+
+import com.bulletphysics.BulletGlobals;
+import com.bulletphysics.Transform;
+import com.bulletphysics.collision.broadphase.CollisionAlgorithm;
+import com.bulletphysics.collision.broadphase.CollisionAlgorithmConstructionInfo;
+import com.bulletphysics.collision.narrowphase.PersistentManifold;
+import com.bulletphysics.collision.shapes.BoxShape;
+import com.bulletphysics.collision.shapes.SphereShape;
+
+import javax.vecmath.Vector3;
+import java.util.List;
+
+public class SphereBoxCollisionAlgorithm extends CollisionAlgorithm {
+    public boolean ownManifold;
+    public PersistentManifold manifoldPtr;
+    public boolean isSwapped;
+    private final Transform sphereTrans = new Transform();
+    private final Transform boxTrans = new Transform();
+    private final Vector3 extents = new Vector3();
+    private final Vector3 center = new Vector3();
+    private final Vector3 closest = new Vector3();
+    private final Vector3 normal = new Vector3();
+
+    public void init(PersistentManifold mf, CollisionAlgorithmConstructionInfo ci, boolean isSwapped) {
+        super.init(ci);
+        manifoldPtr = mf;
+        ownManifold = false;
+        this.isSwapped = isSwapped;
+    }
+
+    @Override
+    public void destroy() {
+        if (ownManifold) {
+            if (manifoldPtr != null) dispatcher.releaseManifold(manifoldPtr);
+        }
+        manifoldPtr = null;
+    }
+
+    @Override
+    public void prepareCollision(CollisionObject body0, CollisionObject body1) {
+        if (manifoldPtr == null) {
+            manifoldPtr = dispatcher.getNewManifold(body0, body1);
+            ownManifold = true;
+        }
+    }
+
+    @Override
+    public void processCollision(CollisionObject body0, CollisionObject body1, ManifoldResult resultOut) {
+        prepareCollision(body0, body1);
+        resultOut.setPersistentManifold(manifoldPtr);
+        var threshold = manifoldPtr.getContactBreakingThreshold() + resultOut.getSpeculativeMargin();
+        manifoldPtr.setContactProcessingThreshold(threshold);
+        var sphereObj = isSwapped ? body1 : body0;
+        var boxObj = isSwapped ? body0 : body1;
+        var radius = ((SphereShape) sphereObj.getCollisionShape()).getRadius();
+        var box = (BoxShape) boxObj.getCollisionShape();
+        var margin = box.getMargin();
+        box.getHalfExtentsWithoutMargin(extents);
+        extents.set(extents.x + margin, extents.y + margin, extents.z + margin);
+        sphereObj.getWorldTransform(sphereTrans);
+        boxObj.getWorldTransform(boxTrans);
+        boxTrans.invXform(sphereTrans.origin, center);
+        closest.set(Math.max(-extents.x, Math.min(extents.x, center.x)), Math.max(-extents.y, Math.min(extents.y, center.y)), Math.max(-extents.z, Math.min(extents.z, center.z)));
+        normal.set(center).sub(closest);
+        var lenSqr = normal.lengthSquared();
+        float dist;
+        if (lenSqr > BulletGlobals.EPSILON * BulletGlobals.EPSILON) {
+            var len = (float) Math.sqrt(lenSqr);
+            normal.mul(1f / len);
+            dist = len - radius;
+        } else {
+            var axis = 0;
+            var faceDist = extents.x - Math.abs(center.x);
+            for (var i = 1; i < 3; i++) {
+                var d = extents.getCoord(i) - Math.abs(center.getCoord(i));
+                if (d < faceDist) {
+                    faceDist = d;
+                    axis = i;
+                }
+            }
+            var sign = center.getCoord(axis) >= 0f ? 1f : -1f;
+            normal.set(0f, 0f, 0f);
+            normal.setCoord(axis, sign);
+            closest.setCoord(axis, sign * extents.getCoord(axis));
+            dist = -faceDist - radius;
+        }
+        if (dist <= threshold) {
+            boxTrans.transform(closest);
+            normal.transform(boxTrans.basis);
+            if (isSwapped) {
+                closest.scaleAdd(dist, normal, closest);
+                normal.negate();
+            }
+            resultOut.addContactPoint(normal, closest, dist);
+        }
+        if (ownManifold) resultOut.refreshContactPoints();
+    }
+
+    @Override
+    public void getAllContactManifolds(List<PersistentManifold> manifoldArray) {
+        if (manifoldPtr != null && ownManifold) manifoldArray.add(manifoldPtr);
+    }
+
+    public static class CreateFunc extends CollisionAlgorithmCreateFunc {
+        @Override
+        protected CollisionAlgorithm newAlgorithm() {
+            return new SphereBoxCollisionAlgorithm();
+        }
+
+        @Override
+        protected void initAlgorithm(CollisionAlgorithm algo, CollisionAlgorithmConstructionInfo ci, CollisionObject body0, CollisionObject body1) {
+            ((SphereBoxCollisionAlgorithm) algo).init(ci.manifold, ci, swapped);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.bulletphysics.collision.dispatch;
+
+import com.bulletphysics.BulletGlobals;
+import com.bulletphysics.Transform;
+import com.bulletphysics.collision.broadphase.CollisionAlgorithm;
+import com.bulletphysics.collision.broadphase.CollisionAlgorithmConstructionInfo;
+import com.bulletphysics.collision.narrowphase.PersistentManifold;
+import com.bulletphysics.collision.shapes.SphereShape;
+
+import javax.vecmath.Vector3;
+import java.util.List;
+
+public class SphereSphereCollisionAlgorithm extends CollisionAlgorithm {
+    public boolean ownManifold;
+    public PersistentManifold manifoldPtr;
+    private final Transform trans0 = new Transform();
+    private final Transform trans1 = new Transform();
+    private final Vector3 diff = new Vector3();
+    private final Vector3 normalOnB = new Vector3();
+    private final Vector3 pointOnB = new Vector3();
+
+    public void init(PersistentManifold mf, CollisionAlgorithmConstructionInfo ci) {
+        super.init(ci);
+        manifoldPtr = mf;
+        ownManifold = false;
+    }
+
+    @Override
+    public void destroy() {
+        if (ownManifold) {
+            if (manifoldPtr != null) dispatcher.releaseManifold(manifoldPtr);
+        }
+        manifoldPtr = null;
+    }
+
+    @Override
+    public void prepareCollision(CollisionObject body0, CollisionObject body1) {
+        if (manifoldPtr == null) {
+            manifoldPtr = dispatcher.getNewManifold(body0, body1);
+            ownManifold = true;
+        }
+    }
+
+    @Override
+    public void processCollision(CollisionObject body0, CollisionObject body1, ManifoldResult resultOut) {
+        prepareCollision(body0, body1);
+        resultOut.setPersistentManifold(manifoldPtr);
+        var threshold = manifoldPtr.getContactBreakingThreshold() + resultOut.getSpeculativeMargin();
+        manifoldPtr.setContactProcessingThreshold(threshold);
+        var radius0 = ((SphereShape) body0.getCollisionShape()).getRadius();
+        var radius1 = ((SphereShape) body1.getCollisionShape()).getRadius();
+        var center1 = body1.getWorldTransform(trans1).origin;
+        diff.set(body0.getWorldTransform(trans0).origin).sub(center1);
+        var len = diff.length();
+        var dist = len - (radius0 + radius1);
+        if (dist <= threshold) {
+            if (len > BulletGlobals.EPSILON) {
+                normalOnB.set(diff).mul(1f / len);
+            } else {
+                normalOnB.set(1f, 0f, 0f);
+            }
+            pointOnB.scaleAdd(radius1, normalOnB, center1);
+            resultOut.addContactPoint(normalOnB, pointOnB, dist);
+        }
+        if (ownManifold) resultOut.refreshContactPoints();
+    }
+
+    @Override
+    public void getAllContactManifolds(List<PersistentManifold> manifoldArray) {
+        if (manifoldPtr != null && ownManifold) manifoldArray.add(manifoldPtr);
+    }
+
+    public static class CreateFunc extends CollisionAlgorithmCreateFunc {
+        @Override
+        protected CollisionAlgorithm newAlgorithm() {
+            return new SphereSphereCollisionAlgorithm();
+        }
+
+        @Override
+        protected void initAlgorithm(CollisionAlgorithm algo, CollisionAlgorithmConstructionInfo ci, CollisionObject body0, CollisionObject body1) {
+            ((SphereSphereCollisionAlgorithm) algo).init(ci.manifold, ci);
+        }
+    }
+}
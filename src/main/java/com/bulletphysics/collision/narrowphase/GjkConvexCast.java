@@ -9,9 +9,16 @@ import javax.vecmath.Vector3;
 public class GjkConvexCast implements ConvexCast {
     private static final int MAX_ITERATIONS = 32;
     private final SimplexSolverInterface simplexSolver;
-    private final ConvexShape convexA;
-    private final ConvexShape convexB;
+    private ConvexShape convexA;
+    private ConvexShape convexB;
     private final GjkPairDetector gjk = new GjkPairDetector();
+    private final ClosestPointInput input = new ClosestPointInput();
+    private final PointCollector pointCollector = new PointCollector();
+    private final Vector3 linVelA = new Vector3();
+    private final Vector3 linVelB = new Vector3();
+    private final Vector3 n = new Vector3();
+    private final Vector3 c = new Vector3();
+    private final Vector3 r = new Vector3();
 
     public GjkConvexCast(ConvexShape convexA, ConvexShape convexB, SimplexSolverInterface simplexSolver) {
         this.simplexSolver = simplexSolver;
@@ -19,22 +26,27 @@ public class GjkConvexCast implements ConvexCast {
         this.convexB = convexB;
     }
 
+    public void init(ConvexShape convexA, ConvexShape convexB) {
+        this.convexA = convexA;
+        this.convexB = convexB;
+    }
+
     public boolean calcTimeOfImpact(Transform fromA, Transform toA, Transform fromB, Transform toB, CastResult result) {
         simplexSolver.reset();
-        final var linVelA = new Vector3(toA.origin).sub(fromA.origin);
-        final var linVelB = new Vector3(toB.origin).sub(fromB.origin);
+        linVelA.set(toA.origin).sub(fromA.origin);
+        linVelB.set(toB.origin).sub(fromB.origin);
         final var radius = 0.001f;
-        final var n = new Vector3();
-        final var c = new Vector3();
-        final var r = new Vector3(linVelA).sub(linVelB);
+        n.set(0f, 0f, 0f);
+        c.set(0f, 0f, 0f);
+        r.set(linVelA).sub(linVelB);
         var lambda = 0f;
         var hasResult = false;
         var lastLambda = lambda;
         var numIter = 0;
-        var input = new ClosestPointInput();
         input.transformA.set(fromA);
         input.transformB.set(fromB);
-        var pointCollector = new PointCollector();
+        input.maximumDistanceSquared = Float.MAX_VALUE;
+        pointCollector.reset();
         gjk.init(convexA, convexB, simplexSolver, null);
         gjk.getClosestPoints(input, pointCollector);
         hasResult = pointCollector.hasResult;
@@ -7,10 +7,10 @@ import javax.vecmath.Vector3;
 
 public class GjkEpaPenetrationDepthSolver implements ConvexPenetrationDepthSolver {
     private final GjkEpaSolver gjkEpaSolver = new GjkEpaSolver();
+    private final GjkEpaSolver.Results results = new GjkEpaSolver.Results();
 
     public boolean calcPenDepth(ConvexShape pConvexA, ConvexShape pConvexB, Transform transformA, Transform transformB, Vector3 wWitnessOnA, Vector3 wWitnessOnB) {
         var radialmargin = 0f;
-        var results = new GjkEpaSolver.Results();
         if (gjkEpaSolver.collide(pConvexA, transformA, pConvexB, transformB, radialmargin, results)) {
             wWitnessOnA.set(results.witnesses[0]);
             wWitnessOnB.set(results.witnesses[1]);
@@ -18,4 +18,8 @@ public class GjkEpaPenetrationDepthSolver implements ConvexPenetrationDepthSolve
         }
         return false;
     }
+
+    public GjkEpaSolver getSolver() {
+        return gjkEpaSolver;
+    }
 }
@@ -35,6 +35,8 @@ public class GjkEpaSolver {
     private static final int EPA_maxiterations = 256;
     private static final float EPA_inface_eps = 0.01f;
     private static final float EPA_accuracy = 0.001f;
+    private static final int EPA_maxvertices = EPA_maxiterations + 5;
+    private static final int EPA_initialfaces = EPA_maxiterations * 2;
 
     public static class Mkv {
         public final Vector3 w = new Vector3();
@@ -62,6 +64,35 @@ public class GjkEpaSolver {
         public int iterations;
         public float margin;
         public boolean failed;
+        private final He[] hePool = new He[GJK_maxiterations + 1];
+        private int heCount;
+        private final Vector3 localDir = new Vector3();
+        private final Vector3 supportA = new Vector3();
+        private final Vector3 supportB = new Vector3();
+        private final Vector3 negDir = new Vector3();
+        private final Vector3 cabo = new Vector3();
+        private final Vector3 cabc = new Vector3();
+        private final Vector3 sideAb = new Vector3();
+        private final Vector3 sideAc = new Vector3();
+        private final Vector3 crs = new Vector3();
+        private final Vector3 faceAbc = new Vector3();
+        private final Vector3 faceAcd = new Vector3();
+        private final Vector3 faceAdb = new Vector3();
+        private final Vector3 searchAo = new Vector3();
+        private final Vector3 searchAb = new Vector3();
+        private final Vector3 searchAc = new Vector3();
+        private final Vector3 searchAd = new Vector3();
+        private final Vector3 initRay = new Vector3();
+        private final Vector3 encloseTmp = new Vector3();
+        private final Vector3 encloseTmp1 = new Vector3();
+        private final Vector3 encloseTmp2 = new Vector3();
+        private final Vector3 encloseAxis = new Vector3();
+        private final Vector3 encloseNormal = new Vector3();
+        private final Vector3[] encloseBasis = new Vector3[]{new Vector3(), new Vector3(), new Vector3()};
+        private final float[] encloseLengths = new float[3];
+        private final Quaternion encloseQuat = new Quaternion();
+        private final Matrix3 encloseRotation = new Matrix3();
+        private final Mkv swapTmp = new Mkv();
 
         {
             for (var i = 0; i < simplex.length; i++) {
@@ -84,6 +115,8 @@ public class GjkEpaSolver {
         }
 
         public void destroy() {
+            shapes[0] = null;
+            shapes[1] = null;
         }
 
         public int Hash(Vector3 v) {
@@ -92,9 +125,8 @@ public class GjkEpaSolver {
         }
 
         public Vector3 LocalSupport(Vector3 d, int i, Vector3 out) {
-            var tmp = new Vector3();
-            wrotations[i].transposeTransform(tmp, d);
-            shapes[i].localGetSupportingVertex(tmp, out);
+            wrotations[i].transposeTransform(localDir, d);
+            shapes[i].localGetSupportingVertex(localDir, out);
             out.transform(wrotations[i]);
             out.add(positions[i]);
             return out;
@@ -102,12 +134,11 @@ public class GjkEpaSolver {
 
         public void Support(Vector3 d, Mkv v) {
             v.r.set(d);
-            var tmp1 = LocalSupport(d, 0, new Vector3());
-            var tmp = new Vector3();
-            tmp.set(d);
-            tmp.negate();
-            var tmp2 = LocalSupport(tmp, 1, new Vector3());
-            v.w.set(tmp1).sub(tmp2);
+            LocalSupport(d, 0, supportA);
+            negDir.set(d);
+            negDir.negate();
+            LocalSupport(negDir, 1, supportB);
+            v.w.set(supportA).sub(supportB);
             v.w.scaleAdd(margin, d, v.w);
         }
 
@@ -122,7 +153,11 @@ public class GjkEpaSolver {
                     e = e.n;
                 }
             }
-            e = new He();
+            e = hePool[heCount];
+            if (e == null) {
+                e = hePool[heCount] = new He();
+            }
+            heCount++;
             e.v.set(ray);
             e.n = table[h];
             table[h] = e;
@@ -132,7 +167,6 @@ public class GjkEpaSolver {
 
         public boolean SolveSimplex2(Vector3 ao, Vector3 ab) {
             if (ab.dot(ao) >= 0) {
-                var cabo = new Vector3();
                 cabo.cross(ab, ao);
                 if (cabo.lengthSquared() > GJK_sqinsimplex_eps) {
                     ray.cross(cabo, ab);
@@ -148,22 +182,19 @@ public class GjkEpaSolver {
         }
 
         public boolean SolveSimplex3(Vector3 ao, Vector3 ab, Vector3 ac) {
-            var tmp = new Vector3();
-            tmp.cross(ab, ac);
-            return SolveSimplex3a(ao, ab, ac, tmp);
+            cabc.cross(ab, ac);
+            return SolveSimplex3a(ao, ab, ac, cabc);
         }
 
         public boolean SolveSimplex3a(Vector3 ao, Vector3 ab, Vector3 ac, Vector3 cabc) {
-            var tmp = new Vector3();
-            tmp.cross(cabc, ab);
-            var tmp2 = new Vector3();
-            tmp2.cross(cabc, ac);
-            if (tmp.dot(ao) < -GJK_insimplex_eps) {
+            sideAb.cross(cabc, ab);
+            sideAc.cross(cabc, ac);
+            if (sideAb.dot(ao) < -GJK_insimplex_eps) {
                 order = 1;
                 simplex[0].set(simplex[1]);
                 simplex[1].set(simplex[2]);
                 return SolveSimplex2(ao, ab);
-            } else if (tmp2.dot(ao) > +GJK_insimplex_eps) {
+            } else if (sideAc.dot(ao) > +GJK_insimplex_eps) {
                 order = 1;
                 simplex[1].set(simplex[2]);
                 return SolveSimplex2(ao, ac);
@@ -174,7 +205,6 @@ public class GjkEpaSolver {
                         ray.set(cabc);
                     } else {
                         ray.set(cabc).negate();
-                        var swapTmp = new Mkv();
                         swapTmp.set(simplex[0]);
                         simplex[0].set(simplex[1]);
                         simplex[1].set(swapTmp);
@@ -187,27 +217,23 @@ public class GjkEpaSolver {
         }
 
         public boolean SolveSimplex4(Vector3 ao, Vector3 ab, Vector3 ac, Vector3 ad) {
-            var crs = new Vector3();
-            var tmp = new Vector3();
-            tmp.cross(ab, ac);
-            var tmp2 = new Vector3();
-            tmp2.cross(ac, ad);
-            var tmp3 = new Vector3();
-            tmp3.cross(ad, ab);
-            if (tmp.dot(ao) > GJK_insimplex_eps) {
-                crs.set(tmp);
+            faceAbc.cross(ab, ac);
+            faceAcd.cross(ac, ad);
+            faceAdb.cross(ad, ab);
+            if (faceAbc.dot(ao) > GJK_insimplex_eps) {
+                crs.set(faceAbc);
                 order = 2;
                 simplex[0].set(simplex[1]);
                 simplex[1].set(simplex[2]);
                 simplex[2].set(simplex[3]);
                 return SolveSimplex3a(ao, ab, ac, crs);
-            } else if (tmp2.dot(ao) > GJK_insimplex_eps) {
-                crs.set(tmp2);
+            } else if (faceAcd.dot(ao) > GJK_insimplex_eps) {
+                crs.set(faceAcd);
                 order = 2;
                 simplex[2].set(simplex[3]);
                 return SolveSimplex3a(ao, ac, ad, crs);
-            } else if (tmp3.dot(ao) > GJK_insimplex_eps) {
-                crs.set(tmp3);
+            } else if (faceAdb.dot(ao) > GJK_insimplex_eps) {
+                crs.set(faceAdb);
                 order = 2;
                 simplex[1].set(simplex[0]);
                 simplex[0].set(simplex[2]);
@@ -219,17 +245,13 @@ public class GjkEpaSolver {
         }
 
         public boolean SearchOrigin() {
-            var tmp = new Vector3();
-            tmp.set(1f, 0f, 0f);
-            return SearchOrigin(tmp);
+            initRay.set(1f, 0f, 0f);
+            return SearchOrigin(initRay);
         }
 
         public boolean SearchOrigin(Vector3 initray) {
-            var tmp1 = new Vector3();
-            var tmp2 = new Vector3();
-            var tmp3 = new Vector3();
-            var tmp4 = new Vector3();
             iterations = 0;
+            heCount = 0;
             order = -1;
             failed = false;
             ray.set(initray);
@@ -244,22 +266,22 @@ public class GjkEpaSolver {
                     var found = false;
                     switch (order) {
                         case 1:
-                            tmp1.set(simplex[1].w).negate();
-                            tmp2.set(simplex[0].w).sub(simplex[1].w);
-                            found = SolveSimplex2(tmp1, tmp2);
+                            searchAo.set(simplex[1].w).negate();
+                            searchAb.set(simplex[0].w).sub(simplex[1].w);
+                            found = SolveSimplex2(searchAo, searchAb);
                             break;
                         case 2:
-                            tmp1.set(simplex[2].w).negate();
-                            tmp2.set(simplex[1].w).sub(simplex[2].w);
-                            tmp3.set(simplex[0].w).sub(simplex[2].w);
-                            found = SolveSimplex3(tmp1, tmp2, tmp3);
+                            searchAo.set(simplex[2].w).negate();
+                            searchAb.set(simplex[1].w).sub(simplex[2].w);
+                            searchAc.set(simplex[0].w).sub(simplex[2].w);
+                            found = SolveSimplex3(searchAo, searchAb, searchAc);
                             break;
                         case 3:
-                            tmp1.set(simplex[3].w).negate();
-                            tmp2.set(simplex[2].w).sub(simplex[3].w);
-                            tmp3.set(simplex[1].w).sub(simplex[3].w);
-                            tmp4.set(simplex[0].w).sub(simplex[3].w);
-                            found = SolveSimplex4(tmp1, tmp2, tmp3, tmp4);
+                            searchAo.set(simplex[3].w).negate();
+                            searchAb.set(simplex[2].w).sub(simplex[3].w);
+                            searchAc.set(simplex[1].w).sub(simplex[3].w);
+                            searchAd.set(simplex[0].w).sub(simplex[3].w);
+                            found = SolveSimplex4(searchAo, searchAb, searchAc, searchAd);
                             break;
                     }
                     if (found) {
@@ -274,50 +296,47 @@ public class GjkEpaSolver {
         }
 
         public boolean EncloseOrigin() {
-            var tmp = new Vector3();
-            var tmp1 = new Vector3();
-            var tmp2 = new Vector3();
             switch (order) {
                 case 0:
                     break;
                 case 1:
-                    var ab = new Vector3();
-                    ab.set(simplex[1].w).sub(simplex[0].w);
-                    var b = new Vector3[]{new Vector3(), new Vector3(), new Vector3()};
+                    var ab = encloseAxis.set(simplex[1].w).sub(simplex[0].w);
+                    var b = encloseBasis;
                     b[0].set(1f, 0f, 0f);
                     b[1].set(0f, 1f, 0f);
                     b[2].set(0f, 0f, 1f);
                     b[0].cross(ab, b[0]);
                     b[1].cross(ab, b[1]);
                     b[2].cross(ab, b[2]);
-                    var m = new float[]{b[0].lengthSquared(), b[1].lengthSquared(), b[2].lengthSquared()};
-                    var tmpQuat = new Quaternion();
-                    tmp.set(ab).normalize();
-                    tmpQuat.setRotation(tmp, cst2Pi / 3f);
-                    var r = new Matrix3();
-                    r.setRotation(tmpQuat);
-                    var w = new Vector3();
-                    w.set(b[m[0] > m[1] ? m[0] > m[2] ? 0 : 2 : m[1] > m[2] ? 1 : 2]);
-                    tmp.set(w).normalize();
-                    Support(tmp, simplex[4]);
+                    var m = encloseLengths;
+                    m[0] = b[0].lengthSquared();
+                    m[1] = b[1].lengthSquared();
+                    m[2] = b[2].lengthSquared();
+                    var tmpQuat = encloseQuat;
+                    encloseTmp.set(ab).normalize();
+                    tmpQuat.setRotation(encloseTmp, cst2Pi / 3f);
+                    var r = encloseRotation.setRotation(tmpQuat);
+                    var w = encloseNormal.set(b[m[0] > m[1] ? m[0] > m[2] ? 0 : 2 : m[1] > m[2] ? 1 : 2]);
+                    encloseTmp.set(w).normalize();
+                    Support(encloseTmp, simplex[4]);
                     w.transform(r);
-                    tmp.set(w).normalize();
-                    Support(tmp, simplex[2]);
+                    encloseTmp.set(w).normalize();
+                    Support(encloseTmp, simplex[2]);
                     w.transform(r);
-                    tmp.set(w).normalize();
-                    Support(tmp, simplex[3]);
+                    encloseTmp.set(w).normalize();
+                    Support(encloseTmp, simplex[3]);
                     w.transform(r);
                     order = 4;
                     return true;
                 case 2:
-                    tmp1.set(simplex[1].w).sub(simplex[0].w);
-                    tmp2.set(simplex[2].w).sub(simplex[0].w);
-                    var n = new Vector3();
-                    n.cross(tmp1, tmp2);
+                    encloseTmp1.set(simplex[1].w).sub(simplex[0].w);
+                    encloseTmp2.set(simplex[2].w).sub(simplex[0].w);
+                    var n = encloseNormal;
+                    n.cross(encloseTmp1, encloseTmp2);
                     n.normalize();
                     Support(n, simplex[3]);
-                    tmp.set(n).negate();
-                    Support(tmp, simplex[4]);
+                    encloseTmp.set(n).negate();
+                    Support(encloseTmp, simplex[4]);
                     order = 4;
                     return true;
                 case 3:
@@ -355,6 +374,20 @@ public class GjkEpaSolver {
         public final Vector3 normal = new Vector3();
         public float depth;
         public boolean failed;
+        private final Mkv[] mkvPool = new Mkv[EPA_maxvertices];
+        private int mkvCount;
+        private Face[] facePool = new Face[EPA_initialfaces];
+        private int faceCount;
+        private final Mkv[] basemkv = new Mkv[5];
+        private final Face[] basefaces = new Face[6];
+        private final Face[] horizonCurrent = new Face[1];
+        private final Face[] horizonFirst = new Face[1];
+        private final Vector3 tmp = new Vector3();
+        private final Vector3 tmp1 = new Vector3();
+        private final Vector3 tmp2 = new Vector3();
+        private final Vector3 tmp3 = new Vector3();
+        private final Vector3 origin = new Vector3();
+        private final Vector3 coordinates = new Vector3();
 
         {
             for (var i = 0; i < features.length; i++) {
@@ -369,27 +402,19 @@ public class GjkEpaSolver {
         }
 
         public Vector3 GetCoordinates(Face face, Vector3 out) {
-            var tmp = new Vector3();
-            var tmp1 = new Vector3();
-            var tmp2 = new Vector3();
-            var o = new Vector3();
             float s = -face.d;
-            o.set(face.n).mul(s);
-            var a = new Float[3];
-            tmp1.set(face.v[0].w).sub(o);
-            tmp2.set(face.v[1].w).sub(o);
-            tmp.cross(tmp1, tmp2);
-            a[0] = tmp.length();
-            tmp1.set(face.v[1].w).sub(o);
-            tmp2.set(face.v[2].w).sub(o);
-            tmp.cross(tmp1, tmp2);
-            a[1] = tmp.length();
-            tmp1.set(face.v[2].w).sub(o);
-            tmp2.set(face.v[0].w).sub(o);
-            tmp.cross(tmp1, tmp2);
-            a[2] = tmp.length();
-            var sm = a[0] + a[1] + a[2];
-            out.set(a[1], a[2], a[0]);
+            origin.set(face.n).mul(s);
+            tmp1.set(face.v[0].w).sub(origin);
+            tmp2.set(face.v[1].w).sub(origin);
+            var a0 = tmp3.cross(tmp1, tmp2).length();
+            tmp1.set(face.v[1].w).sub(origin);
+            tmp2.set(face.v[2].w).sub(origin);
+            var a1 = tmp3.cross(tmp1, tmp2).length();
+            tmp1.set(face.v[2].w).sub(origin);
+            tmp2.set(face.v[0].w).sub(origin);
+            var a2 = tmp3.cross(tmp1, tmp2).length();
+            var sm = a0 + a1 + a2;
+            out.set(a1, a2, a0);
             out.mul(1f / (sm > 0f ? sm : 1f));
             return out;
         }
@@ -410,10 +435,7 @@ public class GjkEpaSolver {
         }
 
         public boolean Set(Face f, Mkv a, Mkv b, Mkv c) {
-            var tmp1 = new Vector3();
-            var tmp2 = new Vector3();
-            var tmp3 = new Vector3();
-            var nrm = new Vector3();
+            var nrm = tmp;
             tmp1.set(b.w).sub(a.w);
             tmp2.set(c.w).sub(a.w);
             nrm.cross(tmp1, tmp2);
@@ -433,7 +455,14 @@ public class GjkEpaSolver {
         }
 
         public Face NewFace(Mkv a, Mkv b, Mkv c) {
-            var pf = new Face();
+            if (faceCount == facePool.length) {
+                facePool = Arrays.copyOf(facePool, facePool.length * 2);
+            }
+            var pf = facePool[faceCount];
+            if (pf == null) {
+                pf = facePool[faceCount] = new Face();
+            }
+            faceCount++;
             if (Set(pf, a, b, c)) {
                 if (root != null) {
                     root.prev = pf;
@@ -448,6 +477,13 @@ public class GjkEpaSolver {
             return pf;
         }
 
+        public void reset() {
+            root = null;
+            nfaces = 0;
+            mkvCount = 0;
+            faceCount = 0;
+        }
+
         public void Detach(Face face) {
             if (face.prev != null || face.next != null) {
                 --nfaces;
@@ -474,11 +510,20 @@ public class GjkEpaSolver {
         }
 
         public Mkv Support(Vector3 w) {
-            var v = new Mkv();
+            var v = NewMkv();
             gjk.Support(w, v);
             return v;
         }
 
+        private Mkv NewMkv() {
+            var v = mkvPool[mkvCount];
+            if (v == null) {
+                v = mkvPool[mkvCount] = new Mkv();
+            }
+            mkvCount++;
+            return v;
+        }
+
         public int BuildHorizon(int markid, Mkv w, Face f, int e, Face[] cf, Face[] ff) {
             var ne = 0;
             if (f.mark != markid) {
@@ -509,13 +554,11 @@ public class GjkEpaSolver {
         }
 
         public float EvaluatePD(float accuracy) {
-            var tmp = new Vector3();
             Face bestface = null;
             var markid = 1;
             depth = -cstInf;
             normal.set(0f, 0f, 0f);
-            root = null;
-            nfaces = 0;
+            reset();
             iterations = 0;
             failed = false;
             if (gjk.EncloseOrigin()) {
@@ -525,8 +568,6 @@ public class GjkEpaSolver {
                 int[][] peidx_ptr = null;
                 var peidx_index = 0;
                 var neidx = 0;
-                var basemkv = new Mkv[5];
-                var basefaces = new Face[6];
                 switch (gjk.order) {
                     case 3:
                         pfidx_ptr = tetrahedron_fidx;
@@ -547,7 +588,7 @@ public class GjkEpaSolver {
                 }
                 int i;
                 for (i = 0; i <= gjk.order; ++i) {
-                    basemkv[i] = new Mkv();
+                    basemkv[i] = NewMkv();
                     basemkv[i].set(gjk.simplex[i]);
                 }
                 for (i = 0; i < nfidx; ++i, pfidx_index++) {
@@ -568,8 +609,10 @@ public class GjkEpaSolver {
                     var d = bf.n.dot(w.w) + bf.d;
                     bestface = bf;
                     if (d < -accuracy) {
-                        var cf = new Face[]{null};
-                        var ff = new Face[]{null};
+                        var cf = horizonCurrent;
+                        var ff = horizonFirst;
+                        cf[0] = null;
+                        ff[0] = null;
                         var nf = 0;
                         Detach(bf);
                         bf.mark = ++markid;
@@ -588,7 +631,7 @@ public class GjkEpaSolver {
                 }
             }
             if (bestface != null) {
-                var b = GetCoordinates(bestface, new Vector3());
+                var b = GetCoordinates(bestface, coordinates);
                 normal.set(bestface.n);
                 depth = Math.max(0, bestface.d);
                 for (var i = 0; i < 2; ++i) {
@@ -598,9 +641,6 @@ public class GjkEpaSolver {
                         gjk.LocalSupport(tmp, i, features[i][j]);
                     }
                 }
-                var tmp1 = new Vector3();
-                var tmp2 = new Vector3();
-                var tmp3 = new Vector3();
                 tmp1.set(features[0][0]).mul(b.x);
                 tmp2.set(features[0][1]).mul(b.y);
                 tmp3.set(features[0][2]).mul(b.z);
@@ -617,6 +657,11 @@ public class GjkEpaSolver {
     }
 
     private final GJK gjk = new GJK();
+    private final EPA epa = new EPA(gjk);
+    private long gjkIterations;
+    private long epaIterations;
+    private int gjkFailures;
+    private int epaFailures;
 
     public boolean collide(ConvexShape shape0, Transform wtrs0, ConvexShape shape1, Transform wtrs1, float radialmargin, Results results) {
         results.witnesses[0].set(0f, 0f, 0f);
@@ -630,10 +675,11 @@ public class GjkEpaSolver {
         try {
             var collide = gjk.SearchOrigin();
             results.gjk_iterations = gjk.iterations + 1;
+            gjkIterations += results.gjk_iterations;
             if (collide) {
-                var epa = new EPA(gjk);
                 var pd = epa.EvaluatePD();
                 results.epa_iterations = epa.iterations + 1;
+                epaIterations += results.epa_iterations;
                 if (pd > 0) {
                     results.status = ResultsStatus.Penetrating;
                     results.normal.set(epa.normal);
@@ -644,16 +690,42 @@ public class GjkEpaSolver {
                 } else {
                     if (epa.failed) {
                         results.status = ResultsStatus.EPA_Failed;
+                        epaFailures++;
                     }
                 }
             } else {
                 if (gjk.failed) {
                     results.status = ResultsStatus.GJK_Failed;
+                    gjkFailures++;
                 }
             }
             return false;
         } finally {
             gjk.destroy();
+            epa.reset();
         }
     }
+
+    public long getGjkIterations() {
+        return gjkIterations;
+    }
+
+    public long getEpaIterations() {
+        return epaIterations;
+    }
+
+    public int getGjkFailures() {
+        return gjkFailures;
+    }
+
+    public int getEpaFailures() {
+        return epaFailures;
+    }
+
+    public void resetCounters() {
+        gjkIterations = 0;
+        epaIterations = 0;
+        gjkFailures = 0;
+        epaFailures = 0;
+    }
 }
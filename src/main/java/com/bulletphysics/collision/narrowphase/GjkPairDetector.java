@@ -14,13 +14,31 @@ public class GjkPairDetector extends DiscreteCollisionDetectorInterface {
     private ConvexShape minkowskiA;
     private ConvexShape minkowskiB;
     private boolean ignoreMargin;
+    private final Transform localTransA = new Transform();
+    private final Transform localTransB = new Transform();
+    private final Vector3 positionOffset = new Vector3();
+    private final Vector3 normalInB = new Vector3();
+    private final Vector3 pointOnA = new Vector3();
+    private final Vector3 pointOnB = new Vector3();
+    private final Vector3 seperatingAxisInA = new Vector3();
+    private final Vector3 seperatingAxisInB = new Vector3();
+    private final Vector3 pInA = new Vector3();
+    private final Vector3 qInB = new Vector3();
+    private final Vector3 pWorld = new Vector3();
+    private final Vector3 qWorld = new Vector3();
+    private final Vector3 w = new Vector3();
+    private final Vector3 tmpPointOnA = new Vector3();
+    private final Vector3 tmpPointOnB = new Vector3();
+    private final Vector3 tmpNormalInB = new Vector3();
+    private final Vector3 tmp = new Vector3();
+    public boolean useCachedSeparatingAxis;
     public int lastUsedMethod;
     public int curIter;
     public int degenerateSimplex;
     public int catchDegeneracies;
 
     public void init(ConvexShape objectA, ConvexShape objectB, SimplexSolverInterface simplexSolver, ConvexPenetrationDepthSolver penetrationDepthSolver) {
-        cachedSeparatingAxis.set(0f, 0f, 1f);
+        cachedSeparatingAxis.set(0f, 1f, 0f);
         ignoreMargin = false;
         lastUsedMethod = -1;
         catchDegeneracies = 1;
@@ -31,14 +49,10 @@ public class GjkPairDetector extends DiscreteCollisionDetectorInterface {
     }
 
     public void getClosestPoints(ClosestPointInput input, Result output) {
-        var tmp = new Vector3();
         var distance = 0f;
-        var normalInB = new Vector3();
-        var pointOnA = new Vector3();
-        var pointOnB = new Vector3();
-        var localTransA = new Transform(input.transformA);
-        var localTransB = new Transform(input.transformB);
-        var positionOffset = new Vector3(localTransA.origin).add(localTransB.origin).mul(0.5f);
+        localTransA.set(input.transformA);
+        localTransB.set(input.transformB);
+        positionOffset.set(localTransA.origin).add(localTransB.origin).mul(0.5f);
         localTransA.origin.sub(positionOffset);
         localTransB.origin.sub(positionOffset);
         var marginA = minkowskiA.getMargin();
@@ -49,7 +63,10 @@ public class GjkPairDetector extends DiscreteCollisionDetectorInterface {
         }
         curIter = 0;
         var gGjkMaxIter = 1000;
-        cachedSeparatingAxis.set(0f, 1f, 0f);
+        var warmStart = useCachedSeparatingAxis && cachedSeparatingAxis.lengthSquared() > REL_ERROR2;
+        if (!warmStart) {
+            cachedSeparatingAxis.set(0f, 1f, 0f);
+        }
         var isValid = false;
         var checkSimplex = false;
         var checkPenetration = true;
@@ -59,16 +76,6 @@ public class GjkPairDetector extends DiscreteCollisionDetectorInterface {
         var delta = 0f;
         var margin = marginA + marginB;
         simplexSolver.reset();
-        var seperatingAxisInA = new Vector3();
-        var seperatingAxisInB = new Vector3();
-        var pInA = new Vector3();
-        var qInB = new Vector3();
-        var pWorld = new Vector3();
-        var qWorld = new Vector3();
-        var w = new Vector3();
-        var tmpPointOnA = new Vector3();
-        var tmpPointOnB = new Vector3();
-        var tmpNormalInB = new Vector3();
         for (; ; ) {
             seperatingAxisInA.set(cachedSeparatingAxis).negate();
             input.transformA.basis.transposeTransform(seperatingAxisInA, seperatingAxisInA);
@@ -83,6 +90,11 @@ public class GjkPairDetector extends DiscreteCollisionDetectorInterface {
                 checkPenetration = false;
                 break;
             }
+            if (warmStart && curIter == 0 && delta > 0f && delta * delta > cachedSeparatingAxis.lengthSquared() * input.maximumDistanceSquared) {
+                checkPenetration = false;
+                lastUsedMethod = 0;
+                break;
+            }
             if (simplexSolver.inSimplex(w)) {
                 degenerateSimplex = 1;
                 checkSimplex = true;
@@ -168,6 +180,14 @@ public class GjkPairDetector extends DiscreteCollisionDetectorInterface {
         }
     }
 
+    public void setSimplexSolver(SimplexSolverInterface simplexSolver) {
+        this.simplexSolver = simplexSolver;
+    }
+
+    public void setPenetrationDepthSolver(ConvexPenetrationDepthSolver penetrationDepthSolver) {
+        this.penetrationDepthSolver = penetrationDepthSolver;
+    }
+
     public void setMinkowskiA(ConvexShape minkA) {
         minkowskiA = minkA;
     }
@@ -12,6 +12,7 @@ public class PersistentManifold {
     private Object body0;
     private Object body1;
     private int cachedPoints;
+    private float contactProcessingThreshold = BulletGlobals.CONTACT_BREAKING_THRESHOLD;
     public int index1a;
 
     public PersistentManifold() {
@@ -28,6 +29,7 @@ public class PersistentManifold {
         this.body1 = body1;
         cachedPoints = 0;
         index1a = 0;
+        contactProcessingThreshold = BulletGlobals.CONTACT_BREAKING_THRESHOLD;
     }
 
     private int sortCachedPoints(ManifoldPoint pt) {
@@ -106,6 +108,14 @@ public class PersistentManifold {
         return BulletGlobals.CONTACT_BREAKING_THRESHOLD;
     }
 
+    public float getContactProcessingThreshold() {
+        return contactProcessingThreshold;
+    }
+
+    public void setContactProcessingThreshold(float contactProcessingThreshold) {
+        this.contactProcessingThreshold = contactProcessingThreshold;
+    }
+
     public int getCacheEntry(ManifoldPoint newPoint) {
         var shortestDist = getContactBreakingThreshold() * getContactBreakingThreshold();
         var size = getNumContacts();
@@ -166,7 +176,7 @@ public class PersistentManifold {
     }
 
     private boolean validContactDistance(ManifoldPoint pt) {
-        return pt.distance1 <= getContactBreakingThreshold();
+        return pt.distance1 <= contactProcessingThreshold;
     }
 
     public void refreshContactPoints(Transform trA, Transform trB) {
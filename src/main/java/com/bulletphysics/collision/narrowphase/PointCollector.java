@@ -8,6 +8,11 @@ public class PointCollector extends DiscreteCollisionDetectorInterface.Result {
     public float distance = 1e30f;
     public boolean hasResult = false;
 
+    public void reset() {
+        hasResult = false;
+        distance = 1e30f;
+    }
+
     public void addContactPoint(Vector3 normalOnBInWorld, Vector3 pointInWorld, float depth) {
         if (depth < distance) {
             hasResult = true;
@@ -0,0 +1,244 @@
+package com.bulletphysics.collision.narrowphase;
+
+import com.bulletphysics.Transform;
+import com.bulletphysics.collision.shapes.PolyhedralConvexShape;
+
+import javax.vecmath.Vector3;
+
+public class PolyhedralContactClipping {
+    private static final float RELATIVE_TOLERANCE = 0.95f;
+    private static final float ABSOLUTE_TOLERANCE = 0.01f;
+    private static final float EDGE_TOLERANCE = 0.05f;
+    private static final int MAX_CONTACTS = 4;
+    private Vector3[] clipIn = new Vector3[0];
+    private Vector3[] clipOut = new Vector3[0];
+    private Vector3[] refVertices = new Vector3[0];
+    private float[] depths = new float[0];
+    private final int[] selected = new int[MAX_CONTACTS];
+    private final Vector3 refNormal = new Vector3();
+    private final Vector3 faceNormal = new Vector3();
+    private final Vector3 direction = new Vector3();
+    private final Vector3 support = new Vector3();
+    private final Vector3 sideNormal = new Vector3();
+    private final Vector3 edge = new Vector3();
+    private final Vector3 pointB = new Vector3();
+    private final Vector3 areaA = new Vector3();
+    private final Vector3 areaB = new Vector3();
+    private final Vector3 tmp = new Vector3();
+    private float alignment;
+    private float separation;
+
+    public int clipHulls(PolyhedralConvexShape shapeA, Transform transA, PolyhedralConvexShape shapeB, Transform transB, Vector3 normalOnB, float distance, float threshold, DiscreteCollisionDetectorInterface.Result output) {
+        var faceA = findSeparatingFace(shapeA, transA, shapeB, transB);
+        var sepA = separation;
+        var faceB = findSeparatingFace(shapeB, transB, shapeA, transA);
+        var sepB = separation;
+        if (faceA < 0 || faceB < 0) {
+            return 0;
+        }
+        var referenceIsA = sepB <= RELATIVE_TOLERANCE * sepA + ABSOLUTE_TOLERANCE;
+        var faceSep = referenceIsA ? sepA : sepB;
+        if (faceSep > threshold) {
+            return 0;
+        }
+        if (referenceIsA) {
+            shapeA.getFaceNormal(faceA, faceNormal);
+            faceNormal.transform(transA.basis);
+        } else {
+            shapeB.getFaceNormal(faceB, faceNormal);
+            faceNormal.transform(transB.basis);
+        }
+        if (distance - faceSep > EDGE_TOLERANCE && Math.abs(faceNormal.dot(normalOnB)) < RELATIVE_TOLERANCE) {
+            return 0;
+        }
+        if (referenceIsA) {
+            return clipFace(shapeA, transA, faceA, shapeB, transB, true, threshold, output);
+        }
+        return clipFace(shapeB, transB, faceB, shapeA, transA, false, threshold, output);
+    }
+
+    public int clipFace(PolyhedralConvexShape refShape, Transform refTrans, int refFace, PolyhedralConvexShape incShape, Transform incTrans, boolean referenceIsA, float threshold, DiscreteCollisionDetectorInterface.Result output) {
+        refShape.getFaceNormal(refFace, refNormal);
+        refNormal.transform(refTrans.basis);
+        direction.set(refNormal).negate();
+        var incFace = findSupportFace(incShape, incTrans, direction);
+        if (incFace < 0) {
+            return 0;
+        }
+        var refCount = refShape.getFaceVertexCount(refFace);
+        var incCount = incShape.getFaceVertexCount(incFace);
+        ensureCapacity(refCount, refCount + incCount);
+        for (var i = 0; i < refCount; i++) {
+            refShape.getFaceVertex(refFace, i, refVertices[i]);
+            refTrans.transform(refVertices[i]);
+        }
+        for (var i = 0; i < incCount; i++) {
+            incShape.getFaceVertex(incFace, i, clipIn[i]);
+            incTrans.transform(clipIn[i]);
+        }
+        var count = incCount;
+        for (var i = 0; i < refCount && count > 0; i++) {
+            var v0 = refVertices[i];
+            edge.set(refVertices[(i + 1) % refCount]).sub(v0);
+            sideNormal.cross(edge, refNormal);
+            count = clipPolygon(count, sideNormal, sideNormal.dot(v0));
+        }
+        var refOffset = refNormal.dot(refVertices[0]);
+        var numContacts = 0;
+        for (var i = 0; i < count; i++) {
+            var depth = refNormal.dot(clipIn[i]) - refOffset;
+            if (depth <= threshold) {
+                clipOut[numContacts].set(clipIn[i]);
+                depths[numContacts++] = depth;
+            }
+        }
+        var numSelected = selectContacts(numContacts);
+        if (referenceIsA) {
+            refNormal.negate();
+        }
+        for (var i = 0; i < numSelected; i++) {
+            var index = selected[i];
+            var depth = depths[index];
+            if (referenceIsA) {
+                pointB.set(clipOut[index]);
+            } else {
+                pointB.scaleAdd(-depth, refNormal, clipOut[index]);
+            }
+            output.addContactPoint(refNormal, pointB, depth);
+        }
+        return numSelected;
+    }
+
+    private int findSeparatingFace(PolyhedralConvexShape shape, Transform trans, PolyhedralConvexShape other, Transform otherTrans) {
+        var best = -1;
+        separation = -Float.MAX_VALUE;
+        for (int i = 0, n = shape.getNumFaces(); i < n; i++) {
+            shape.getFaceNormal(i, faceNormal);
+            faceNormal.transform(trans.basis);
+            var maxSelf = faceNormal.dot(getSupportingVertex(shape, trans, faceNormal, 1f));
+            var minOther = faceNormal.dot(getSupportingVertex(other, otherTrans, faceNormal, -1f));
+            var s = minOther - maxSelf;
+            if (s > separation) {
+                separation = s;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private Vector3 getSupportingVertex(PolyhedralConvexShape shape, Transform trans, Vector3 dir, float sign) {
+        direction.set(dir).mul(sign);
+        trans.basis.transposeTransform(direction, direction);
+        shape.localGetSupportingVertex(direction, support);
+        return trans.transform(support);
+    }
+
+    private int findSupportFace(PolyhedralConvexShape shape, Transform trans, Vector3 dir) {
+        var best = -1;
+        alignment = -Float.MAX_VALUE;
+        for (int i = 0, n = shape.getNumFaces(); i < n; i++) {
+            shape.getFaceNormal(i, faceNormal);
+            var d = faceNormal.transform(trans.basis).dot(dir);
+            if (d > alignment) {
+                alignment = d;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private void ensureCapacity(int refCount, int clipCount) {
+        if (refVertices.length < refCount) {
+            refVertices = grow(refVertices, refCount);
+        }
+        if (clipIn.length < clipCount) {
+            clipIn = grow(clipIn, clipCount);
+            clipOut = grow(clipOut, clipCount);
+            depths = new float[clipCount];
+        }
+    }
+
+    private static Vector3[] grow(Vector3[] array, int capacity) {
+        var result = new Vector3[capacity];
+        System.arraycopy(array, 0, result, 0, array.length);
+        for (var i = array.length; i < capacity; i++) {
+            result[i] = new Vector3();
+        }
+        return result;
+    }
+
+    private int clipPolygon(int count, Vector3 planeNormal, float offset) {
+        var outCount = 0;
+        for (var i = 0; i < count; i++) {
+            var a = clipIn[i];
+            var b = clipIn[(i + 1) % count];
+            var da = planeNormal.dot(a) - offset;
+            var db = planeNormal.dot(b) - offset;
+            if (da <= 0f) {
+                clipOut[outCount++].set(a);
+            }
+            if (da <= 0f != db <= 0f) {
+                clipOut[outCount++].interpolate(da / (da - db), a, b);
+            }
+        }
+        var swap = clipIn;
+        clipIn = clipOut;
+        clipOut = swap;
+        return outCount;
+    }
+
+    private int selectContacts(int count) {
+        if (count <= MAX_CONTACTS) {
+            for (var i = 0; i < count; i++) {
+                selected[i] = i;
+            }
+            return count;
+        }
+        var deepest = 0;
+        for (var i = 1; i < count; i++) {
+            if (depths[i] < depths[deepest]) {
+                deepest = i;
+            }
+        }
+        var farthest = -1;
+        var maxDistSqr = -1f;
+        for (var i = 0; i < count; i++) {
+            if (i != deepest) {
+                var distSqr = tmp.set(clipOut[i]).sub(clipOut[deepest]).lengthSquared();
+                if (distSqr > maxDistSqr) {
+                    maxDistSqr = distSqr;
+                    farthest = i;
+                }
+            }
+        }
+        var positive = -1;
+        var negative = -1;
+        var maxArea = 0f;
+        var minArea = 0f;
+        areaA.set(clipOut[farthest]).sub(clipOut[deepest]);
+        for (var i = 0; i < count; i++) {
+            if (i != deepest && i != farthest) {
+                areaB.set(clipOut[i]).sub(clipOut[deepest]);
+                var area = tmp.cross(areaA, areaB).dot(refNormal);
+                if (area > maxArea) {
+                    maxArea = area;
+                    positive = i;
+                }
+                if (area < minArea) {
+                    minArea = area;
+                    negative = i;
+                }
+            }
+        }
+        var numSelected = 0;
+        selected[numSelected++] = deepest;
+        selected[numSelected++] = farthest;
+        if (positive >= 0) {
+            selected[numSelected++] = positive;
+        }
+        if (negative >= 0) {
+            selected[numSelected++] = negative;
+        }
+        return numSelected;
+    }
+}
@@ -18,6 +18,27 @@ public class VoronoiSimplexSolver implements SimplexSolverInterface {
     public boolean cachedValidClosest;
     public final SubSimplexClosestResult cachedBC = new SubSimplexClosestResult();
     public boolean needsUpdate;
+    private final SubSimplexClosestResult tempResult = new SubSimplexClosestResult();
+    private final Vector3 origin = new Vector3();
+    private final Vector3 nearest = new Vector3();
+    private final Vector3 diff = new Vector3();
+    private final Vector3 edge = new Vector3();
+    private final Vector3 tmp = new Vector3();
+    private final Vector3 tmp1 = new Vector3();
+    private final Vector3 tmp2 = new Vector3();
+    private final Vector3 tmp3 = new Vector3();
+    private final Vector3 tmp4 = new Vector3();
+    private final Vector3 ab = new Vector3();
+    private final Vector3 ac = new Vector3();
+    private final Vector3 ap = new Vector3();
+    private final Vector3 bp = new Vector3();
+    private final Vector3 cp = new Vector3();
+    private final Vector3 triangleTmp1 = new Vector3();
+    private final Vector3 triangleTmp2 = new Vector3();
+    private final Vector3 planeNormal = new Vector3();
+    private final Vector3 planeTmp = new Vector3();
+    private final Vector3 tetrahedronTmp = new Vector3();
+    private final Vector3 q = new Vector3();
 
     {
         for (var i = 0; i < VORONOI_SIMPLEX_MAX_VERTS; i++) {
@@ -64,16 +85,11 @@ public class VoronoiSimplexSolver implements SimplexSolverInterface {
                     cachedValidClosest = cachedBC.isValid();
                     break;
                 case 2: {
-                    var tmp = new Vector3();
                     var from = simplexVectorW[0];
                     var to = simplexVectorW[1];
-                    var nearest = new Vector3();
-                    var p = new Vector3();
-                    p.set(0f, 0f, 0f);
-                    var diff = new Vector3();
+                    var p = origin.set(0f, 0f, 0f);
                     diff.set(p).sub(from);
-                    var v = new Vector3();
-                    v.set(to).sub(from);
+                    var v = edge.set(to).sub(from);
                     var t = v.dot(diff);
                     if (t > 0) {
                         var dotVV = v.dot(v);
@@ -107,11 +123,7 @@ public class VoronoiSimplexSolver implements SimplexSolverInterface {
                     break;
                 }
                 case 3: {
-                    var tmp1 = new Vector3();
-                    var tmp2 = new Vector3();
-                    var tmp3 = new Vector3();
-                    var p = new Vector3();
-                    p.set(0f, 0f, 0f);
+                    var p = origin.set(0f, 0f, 0f);
                     var a = simplexVectorW[0];
                     var b = simplexVectorW[1];
                     var c = simplexVectorW[2];
@@ -130,12 +142,7 @@ public class VoronoiSimplexSolver implements SimplexSolverInterface {
                     break;
                 }
                 case 4:
-                    var tmp1 = new Vector3();
-                    var tmp2 = new Vector3();
-                    var tmp3 = new Vector3();
-                    var tmp4 = new Vector3();
-                    var p = new Vector3();
-                    p.set(0f, 0f, 0f);
+                    var p = origin.set(0f, 0f, 0f);
                     var a = simplexVectorW[0];
                     var b = simplexVectorW[1];
                     var c = simplexVectorW[2];
@@ -175,11 +182,8 @@ public class VoronoiSimplexSolver implements SimplexSolverInterface {
 
     public boolean closestPtPointTriangle(Vector3 p, Vector3 a, Vector3 b, Vector3 c, SubSimplexClosestResult result) {
         result.usedVertices.reset();
-        var ab = new Vector3();
         ab.set(b).sub(a);
-        var ac = new Vector3();
         ac.set(c).sub(a);
-        var ap = new Vector3();
         ap.set(p).sub(a);
         var d1 = ab.dot(ap);
         var d2 = ac.dot(ap);
@@ -189,7 +193,6 @@ public class VoronoiSimplexSolver implements SimplexSolverInterface {
             result.setBarycentricCoordinates(1f, 0f, 0f, 0f);
             return true;
         }
-        var bp = new Vector3();
         bp.set(p).sub(b);
         var d3 = ab.dot(bp);
         var d4 = ac.dot(bp);
@@ -208,7 +211,6 @@ public class VoronoiSimplexSolver implements SimplexSolverInterface {
             result.setBarycentricCoordinates(1f - v, v, 0f, 0f);
             return true;
         }
-        var cp = new Vector3();
         cp.set(p).sub(c);
         var d5 = ab.dot(cp);
         var d6 = ac.dot(cp);
@@ -230,9 +232,8 @@ public class VoronoiSimplexSolver implements SimplexSolverInterface {
         var va = d3 * d6 - d5 * d4;
         if (va <= 0f && d4 - d3 >= 0f && d5 - d6 >= 0f) {
             var w = (d4 - d3) / (d4 - d3 + (d5 - d6));
-            var tmp = new Vector3();
-            tmp.set(c).sub(b);
-            result.closestPointOnSimplex.scaleAdd(w, tmp, b);
+            triangleTmp1.set(c).sub(b);
+            result.closestPointOnSimplex.scaleAdd(w, triangleTmp1, b);
             result.usedVertices.usedVertexB = true;
             result.usedVertices.usedVertexC = true;
             result.setBarycentricCoordinates(0, 1f - w, w, 0f);
@@ -241,11 +242,9 @@ public class VoronoiSimplexSolver implements SimplexSolverInterface {
         var denom = 1f / (va + vb + vc);
         var v = vb * denom;
         var w = vc * denom;
-        var tmp1 = new Vector3();
-        var tmp2 = new Vector3();
-        tmp1.set(ab).mul(v);
-        tmp2.set(ac).mul(w);
-        result.closestPointOnSimplex.set(a).add(tmp1).add(tmp2);
+        triangleTmp1.set(ab).mul(v);
+        triangleTmp2.set(ac).mul(w);
+        result.closestPointOnSimplex.set(a).add(triangleTmp1).add(triangleTmp2);
         result.usedVertices.usedVertexA = true;
         result.usedVertices.usedVertexB = true;
         result.usedVertices.usedVertexC = true;
@@ -253,9 +252,9 @@ public class VoronoiSimplexSolver implements SimplexSolverInterface {
         return true;
     }
 
-    public static int pointOutsideOfPlane(Vector3 p, Vector3 a, Vector3 b, Vector3 c, Vector3 d) {
-        var tmp = new Vector3();
-        var normal = new Vector3();
+    public int pointOutsideOfPlane(Vector3 p, Vector3 a, Vector3 b, Vector3 c, Vector3 d) {
+        var tmp = planeTmp;
+        var normal = planeNormal;
         normal.set(b).sub(a);
         tmp.set(c).sub(a);
         normal.cross(normal, tmp);
@@ -270,10 +269,8 @@ public class VoronoiSimplexSolver implements SimplexSolverInterface {
     }
 
     public boolean closestPtPointTetrahedron(Vector3 p, Vector3 a, Vector3 b, Vector3 c, Vector3 d, SubSimplexClosestResult finalResult) {
-        var tempResult = new SubSimplexClosestResult();
         tempResult.reset();
-        var tmp = new Vector3();
-        var q = new Vector3();
+        var tmp = tetrahedronTmp;
         finalResult.closestPointOnSimplex.set(p);
         finalResult.usedVertices.reset();
         finalResult.usedVertices.usedVertexA = true;
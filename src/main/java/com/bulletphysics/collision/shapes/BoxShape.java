@@ -2,6 +2,7 @@ package com.bulletphysics.collision.shapes;
 
 import com.bulletphysics.AabbUtil2;
 import com.bulletphysics.Transform;
+import com.bulletphysics.collision.broadphase.BroadphaseNativeType;
 
 import javax.vecmath.Vector3;
 
@@ -12,11 +13,17 @@ public class BoxShape extends PolyhedralConvexShape {
         implicitShapeDimensions.sub(margin);
     }
 
+    @Override
+    public BroadphaseNativeType getShapeType() {
+        return BroadphaseNativeType.BOX_SHAPE_PROXYTYPE;
+    }
+
     public Vector3 getHalfExtentsWithMargin(Vector3 out) {
         var halfExtents = getHalfExtentsWithoutMargin(out);
-        var margin = new Vector3();
-        margin.set(getMargin(), getMargin(), getMargin());
-        halfExtents.add(margin);
+        var margin = getMargin();
+        halfExtents.x += margin;
+        halfExtents.y += margin;
+        halfExtents.z += margin;
         return out;
     }
 
@@ -102,6 +109,38 @@ public class BoxShape extends PolyhedralConvexShape {
         vtx.set(halfExtents.x * (1 - (i & 1)) - halfExtents.x * (i & 1), halfExtents.y * (1 - ((i & 2) >> 1)) - halfExtents.y * ((i & 2) >> 1), halfExtents.z * (1 - ((i & 4) >> 2)) - halfExtents.z * ((i & 4) >> 2));
     }
 
+    @Override
+    public int getNumFaces() {
+        return 6;
+    }
+
+    @Override
+    public int getFaceVertexCount(int face) {
+        return 4;
+    }
+
+    @Override
+    public void getFaceVertex(int face, int i, Vector3 vtx) {
+        var halfExtents = getHalfExtentsWithoutMargin(vtx);
+        var margin = getMargin();
+        var axis = face % 3;
+        var u = (axis + 1) % 3;
+        var v = (axis + 2) % 3;
+        var hu = halfExtents.getCoord(u) + margin;
+        var hv = halfExtents.getCoord(v) + margin;
+        var ha = halfExtents.getCoord(axis) + margin;
+        var corner = face < 3 ? i : 3 - i;
+        vtx.setCoord(axis, face < 3 ? ha : -ha);
+        vtx.setCoord(u, corner == 0 || corner == 3 ? hu : -hu);
+        vtx.setCoord(v, corner < 2 ? hv : -hv);
+    }
+
+    @Override
+    public void getFaceNormal(int face, Vector3 normal) {
+        normal.set(0f, 0f, 0f);
+        normal.setCoord(face % 3, face < 3 ? 1f : -1f);
+    }
+
     public static float fsel(float a, float b, float c) {
         return a >= 0 ? b : c;
     }
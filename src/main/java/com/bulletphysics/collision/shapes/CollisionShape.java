@@ -1,10 +1,13 @@
 package com.bulletphysics.collision.shapes;
 
 import com.bulletphysics.Transform;
+import com.bulletphysics.collision.broadphase.BroadphaseNativeType;
 
 import javax.vecmath.Vector3;
 
 public abstract class CollisionShape {
+    public abstract BroadphaseNativeType getShapeType();
+
     public abstract void getAabb(Transform t, Vector3 aabbMin, Vector3 aabbMax);
 
     public void getBoundingSphere(Vector3 center, float[] radius) {
@@ -35,30 +38,28 @@ public abstract class CollisionShape {
         var temporalAabbMinx = temporalAabbMin.x;
         var temporalAabbMiny = temporalAabbMin.y;
         var temporalAabbMinz = temporalAabbMin.z;
-        var linMotion = new Vector3(linvel);
-        linMotion.mul(timeStep);
-        if (linMotion.x > 0f) {
-            temporalAabbMaxx += linMotion.x;
+        var linMotionx = linvel.x * timeStep;
+        var linMotiony = linvel.y * timeStep;
+        var linMotionz = linvel.z * timeStep;
+        if (linMotionx > 0f) {
+            temporalAabbMaxx += linMotionx;
         } else {
-            temporalAabbMinx += linMotion.x;
+            temporalAabbMinx += linMotionx;
         }
-        if (linMotion.y > 0f) {
-            temporalAabbMaxy += linMotion.y;
+        if (linMotiony > 0f) {
+            temporalAabbMaxy += linMotiony;
         } else {
-            temporalAabbMiny += linMotion.y;
+            temporalAabbMiny += linMotiony;
         }
-        if (linMotion.z > 0f) {
-            temporalAabbMaxz += linMotion.z;
+        if (linMotionz > 0f) {
+            temporalAabbMaxz += linMotionz;
         } else {
-            temporalAabbMinz += linMotion.z;
+            temporalAabbMinz += linMotionz;
         }
-        var angularMotion = angvel.length() * getAngularMotionDisc() * timeStep;
-        var angularMotion3d = new Vector3();
-        angularMotion3d.set(angularMotion, angularMotion, angularMotion);
-        temporalAabbMin.set(temporalAabbMinx, temporalAabbMiny, temporalAabbMinz);
-        temporalAabbMax.set(temporalAabbMaxx, temporalAabbMaxy, temporalAabbMaxz);
-        temporalAabbMin.sub(angularMotion3d);
-        temporalAabbMax.add(angularMotion3d);
+        var angularSpeed = angvel.length();
+        var angularMotion = angularSpeed == 0f ? 0f : angularSpeed * getAngularMotionDisc() * timeStep;
+        temporalAabbMin.set(temporalAabbMinx - angularMotion, temporalAabbMiny - angularMotion, temporalAabbMinz - angularMotion);
+        temporalAabbMax.set(temporalAabbMaxx + angularMotion, temporalAabbMaxy + angularMotion, temporalAabbMaxz + angularMotion);
     }
 
     public boolean isConvex() {
@@ -1,10 +1,16 @@
 package com.bulletphysics.collision.shapes;
 
 import com.bulletphysics.Transform;
+import com.bulletphysics.collision.broadphase.BroadphaseNativeType;
 
 import javax.vecmath.Vector3;
 
 public abstract class ConvexShape extends CollisionShape {
+    @Override
+    public BroadphaseNativeType getShapeType() {
+        return BroadphaseNativeType.CONVEX_SHAPE_PROXYTYPE;
+    }
+
     public abstract Vector3 localGetSupportingVertex(Vector3 vec, Vector3 out);
 
     public abstract Vector3 localGetSupportingVertexWithoutMargin(Vector3 vec, Vector3 out);
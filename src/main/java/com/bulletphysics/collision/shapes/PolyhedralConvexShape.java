@@ -108,4 +108,12 @@ public abstract class PolyhedralConvexShape extends ConvexInternalShape {
     public abstract int getNumVertices();
 
     public abstract void getVertex(int i, Vector3 vtx);
+
+    public abstract int getNumFaces();
+
+    public abstract int getFaceVertexCount(int face);
+
+    public abstract void getFaceVertex(int face, int i, Vector3 vtx);
+
+    public abstract void getFaceNormal(int face, Vector3 normal);
 }
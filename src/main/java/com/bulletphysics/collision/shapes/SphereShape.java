@@ -1,6 +1,7 @@
 package com.bulletphysics.collision.shapes;
 
 import com.bulletphysics.Transform;
+import com.bulletphysics.collision.broadphase.BroadphaseNativeType;
 
 import javax.vecmath.Vector3;
 
@@ -10,6 +11,11 @@ public class SphereShape extends ConvexInternalShape {
         collisionMargin = radius;
     }
 
+    @Override
+    public BroadphaseNativeType getShapeType() {
+        return BroadphaseNativeType.SPHERE_SHAPE_PROXYTYPE;
+    }
+
     @Override
     public Vector3 localGetSupportingVertexWithoutMargin(Vector3 vec, Vector3 out) {
         out.set(0f, 0f, 0f);
@@ -26,10 +32,9 @@ public class SphereShape extends ConvexInternalShape {
     @Override
     public void getAabb(Transform t, Vector3 aabbMin, Vector3 aabbMax) {
         var center = t.origin;
-        var extent = new Vector3();
-        extent.set(getMargin(), getMargin(), getMargin());
-        aabbMin.set(center).sub(extent);
-        aabbMax.set(center).add(extent);
+        var margin = getMargin();
+        aabbMin.set(center.x - margin, center.y - margin, center.z - margin);
+        aabbMax.set(center.x + margin, center.y + margin, center.z + margin);
     }
 
     @Override
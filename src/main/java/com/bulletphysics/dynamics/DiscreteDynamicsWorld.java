@@ -1,6 +1,7 @@
 package com.bulletphysics.dynamics;
 
 import com.bulletphysics.BulletGlobals;
+import com.bulletphysics.MiscUtil;
 import com.bulletphysics.Transform;
 import com.bulletphysics.collision.broadphase.*;
 import com.bulletphysics.collision.dispatch.CollisionObject;
@@ -14,10 +15,13 @@ import com.bulletphysics.dynamics.constraintsolver.SequentialImpulseConstraintSo
 
 import javax.vecmath.Vector3;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
 public class DiscreteDynamicsWorld extends DynamicsWorld {
+    public static final int DEFAULT_CCD_CHUNK_SIZE = 8;
+    private static final float MIN_CCD_HIT_FRACTION = 0.0001f;
     protected ConstraintSolver constraintSolver;
     protected final SimulationIslandManager islandManager;
     protected final Vector3 gravity = new Vector3(0f, -10f, 0f);
@@ -25,6 +29,23 @@ public class DiscreteDynamicsWorld extends DynamicsWorld {
     protected final boolean ownsIslandManager;
     protected boolean ownsConstraintSolver;
     protected final ArrayList<ActionInterface> actions = new ArrayList<>();
+    public int ccdChunkSize = DEFAULT_CCD_CHUNK_SIZE;
+    private int[] ccdSphereKeys = new int[0];
+    private SphereShape[] ccdSpheres = new SphereShape[0];
+    private RigidBody[] ccdBodies = new RigidBody[0];
+    private Transform[] ccdTransforms = new Transform[0];
+    private SphereShape[] ccdShapes = new SphereShape[0];
+    private float[] ccdHitFractions = new float[0];
+    private float[] ccdAabbMins = new float[0];
+    private float[] ccdAabbMaxs = new float[0];
+    private float[] ccdMotions = new float[0];
+    private float[] ccdSweptMins = new float[0];
+    private float[] ccdSweptMaxs = new float[0];
+    private float[] ccdSweptMaxPrefix = new float[0];
+    private int[] ccdOrder = new int[0];
+    private int[] ccdRanks = new int[0];
+    private boolean[] ccdPending = new boolean[0];
+    private CcdWorker[] ccdWorkers = {new CcdWorker()};
 
     public DiscreteDynamicsWorld(Dispatcher dispatcher, BroadPhaseInterface pairCache, ConstraintSolver constraintSolver) {
         super(dispatcher, pairCache);
@@ -126,6 +147,7 @@ public class DiscreteDynamicsWorld extends DynamicsWorld {
         performDiscreteCollisionDetection();
         calculateSimulationIslands();
         getSolverInfo().timeStep = timeStep;
+        getSolverInfo().useSpeculativeContacts = dispatchInfo.useSpeculativeContacts;
         solveConstraints(getSolverInfo());
         integrateTransforms(timeStep);
         updateActions(timeStep);
@@ -224,6 +246,13 @@ public class DiscreteDynamicsWorld extends DynamicsWorld {
         var tmp = new Vector3();
         var tmpTrans = new Transform();
         var predictedTrans = new Transform();
+        var aabbMin = new Vector3();
+        var aabbMax = new Vector3();
+        var count = 0;
+        var speculative = getDispatchInfo().useSpeculativeContacts;
+        if (ccdPending.length < collisionObjects.size()) {
+            ccdPending = new boolean[collisionObjects.size()];
+        }
         for (CollisionObject colObj : collisionObjects) {
             var body = RigidBody.upcast(colObj);
             if (body != null) {
@@ -232,24 +261,182 @@ public class DiscreteDynamicsWorld extends DynamicsWorld {
                     body.predictIntegratedTransform(timeStep, predictedTrans);
                     tmp.set(predictedTrans.origin).sub(body.getWorldTransform(tmpTrans).origin);
                     var squareMotion = tmp.lengthSquared();
-                    if (body.getCcdSquareMotionThreshold() != 0f && body.getCcdSquareMotionThreshold() < squareMotion) {
-                        if (body.getCollisionShape().isConvex()) {
-                            var sweepResults = new ClosestNotMeConvexResultCallback(body, body.getWorldTransform(tmpTrans).origin, predictedTrans.origin, getBroadphase().getOverlappingPairCache(), getDispatcher());
-                            var tmpSphere = new SphereShape(body.getCcdSweptSphereRadius());
-                            sweepResults.collisionFilterGroup = body.getBroadphaseProxy().collisionFilterGroup;
-                            sweepResults.collisionFilterMask = body.getBroadphaseProxy().collisionFilterMask;
-                            convexSweepTest(tmpSphere, body.getWorldTransform(tmpTrans), predictedTrans, sweepResults);
-                            if (sweepResults.hasHit() && sweepResults.closestHitFraction > 0.0001f) {
-                                body.setHitFraction(sweepResults.closestHitFraction);
-                                body.predictIntegratedTransform(timeStep * body.getHitFraction(), predictedTrans);
-                                body.setHitFraction(0f);
-                            }
+                    if (!speculative && body.getCcdSquareMotionThreshold() != 0f && body.getCcdSquareMotionThreshold() < squareMotion && body.getCollisionShape().isConvex()) {
+                        if (count == ccdBodies.length) {
+                            growCcdBuffers(Math.max(16, count << 1));
                         }
+                        ccdBodies[count] = body;
+                        ccdTransforms[count].set(predictedTrans);
+                        ccdShapes[count] = getCcdSphere(body.getCcdSweptSphereRadius());
+                        body.getCollisionShape().getAabb(tmpTrans, aabbMin, aabbMax);
+                        var j = count * 3;
+                        ccdAabbMins[j] = aabbMin.x;
+                        ccdAabbMins[j + 1] = aabbMin.y;
+                        ccdAabbMins[j + 2] = aabbMin.z;
+                        ccdAabbMaxs[j] = aabbMax.x;
+                        ccdAabbMaxs[j + 1] = aabbMax.y;
+                        ccdAabbMaxs[j + 2] = aabbMax.z;
+                        ccdMotions[j] = tmp.x;
+                        ccdMotions[j + 1] = tmp.y;
+                        ccdMotions[j + 2] = tmp.z;
+                        ccdPending[body.getWorldArrayIndex()] = true;
+                        count++;
+                    } else {
+                        body.proceedToTransform(predictedTrans);
                     }
-                    body.proceedToTransform(predictedTrans);
                 }
             }
         }
+        sortCcdBodies(count);
+        var chunkSize = Math.max(1, ccdChunkSize);
+        var chunks = (count + chunkSize - 1) / chunkSize;
+        var scheduler = getTaskScheduler();
+        if (scheduler != null && chunks > 1) {
+            if (ccdWorkers.length < chunks) {
+                var workers = Arrays.copyOf(ccdWorkers, chunks);
+                for (var i = ccdWorkers.length; i < chunks; i++) {
+                    workers[i] = new CcdWorker();
+                }
+                ccdWorkers = workers;
+            }
+            var total = count;
+            scheduler.parallelFor(chunks, chunk -> sweepCcdBodies(ccdWorkers[chunk], chunk * chunkSize, Math.min(total, (chunk + 1) * chunkSize), total));
+        } else {
+            sweepCcdBodies(ccdWorkers[0], 0, count, count);
+        }
+        for (var i = 0; i < count; i++) {
+            var body = ccdBodies[i];
+            var hitFraction = ccdHitFractions[i];
+            if (hitFraction < 1f) {
+                body.setHitFraction(hitFraction);
+                body.predictIntegratedTransform(timeStep * body.getHitFraction(), ccdTransforms[i]);
+                body.setHitFraction(0f);
+            }
+            body.proceedToTransform(ccdTransforms[i]);
+            ccdPending[body.getWorldArrayIndex()] = false;
+            ccdBodies[i] = null;
+            ccdShapes[i] = null;
+        }
+    }
+
+    private void sweepCcdBodies(CcdWorker worker, int from, int to, int count) {
+        var sweepResults = worker.sweepResults;
+        var pairCache = getBroadphase().getOverlappingPairCache();
+        var dispatcher = getDispatcher();
+        var allowedPenetration = getDispatchInfo().allowedCcdPenetration;
+        for (var i = from; i < to; i++) {
+            var body = ccdBodies[i];
+            var predictedTrans = ccdTransforms[i];
+            body.getWorldTransform(worker.tmpTrans);
+            sweepResults.init(body, worker.tmpTrans.origin, predictedTrans.origin, pairCache, dispatcher, ccdPending);
+            sweepResults.collisionFilterGroup = body.getBroadphaseProxy().collisionFilterGroup;
+            sweepResults.collisionFilterMask = body.getBroadphaseProxy().collisionFilterMask;
+            convexSweepTest(ccdShapes[i], worker.tmpTrans, predictedTrans, sweepResults);
+            var rank = ccdRanks[i];
+            var sweptMin = ccdSweptMins[i];
+            var sweptMax = ccdSweptMaxs[i];
+            for (var k = rank + 1; k < count && ccdSweptMins[ccdOrder[k]] <= sweptMax; k++) {
+                sweepPendingPair(worker, i, ccdOrder[k], allowedPenetration);
+            }
+            for (var k = rank - 1; k >= 0 && ccdSweptMaxPrefix[k] >= sweptMin; k--) {
+                var j = ccdOrder[k];
+                if (ccdSweptMaxs[j] >= sweptMin) {
+                    sweepPendingPair(worker, i, j, allowedPenetration);
+                }
+            }
+            ccdHitFractions[i] = sweepResults.hasHit() ? sweepResults.closestHitFraction : 1f;
+        }
+    }
+
+    private void sweepPendingPair(CcdWorker worker, int i, int j, float allowedPenetration) {
+        var sweepResults = worker.sweepResults;
+        if (ccdRelativeOverlap(i, j) && sweepResults.needsSweep(ccdBodies[j].getBroadphaseProxy())) {
+            var other = ccdBodies[j];
+            other.getWorldTransform(worker.otherTrans);
+            worker.relativeTrans.set(ccdTransforms[i]);
+            worker.relativeTrans.origin.sub(ccdTransforms[j].origin).add(worker.otherTrans.origin);
+            objectQuerySingle(ccdShapes[i], worker.tmpTrans, worker.relativeTrans, other, other.getCollisionShape(), worker.otherTrans, sweepResults, allowedPenetration);
+        }
+    }
+
+    private void sortCcdBodies(int count) {
+        if (ccdOrder.length < count) {
+            var capacity = ccdBodies.length;
+            ccdSweptMins = new float[capacity];
+            ccdSweptMaxs = new float[capacity];
+            ccdSweptMaxPrefix = new float[capacity];
+            ccdOrder = new int[capacity];
+            ccdRanks = new int[capacity];
+        }
+        var axis = 0;
+        var maxSpread = -1f;
+        for (var a = 0; a < 3; a++) {
+            var lo = Float.POSITIVE_INFINITY;
+            var hi = Float.NEGATIVE_INFINITY;
+            for (var i = 0; i < count; i++) {
+                var center = ccdAabbMins[i * 3 + a] + ccdAabbMaxs[i * 3 + a];
+                lo = Math.min(lo, center);
+                hi = Math.max(hi, center);
+            }
+            if (hi - lo > maxSpread) {
+                maxSpread = hi - lo;
+                axis = a;
+            }
+        }
+        for (var i = 0; i < count; i++) {
+            var j = i * 3 + axis;
+            var motion = ccdMotions[j];
+            ccdSweptMins[i] = ccdAabbMins[j] + Math.min(motion, 0f);
+            ccdSweptMaxs[i] = ccdAabbMaxs[j] + Math.max(motion, 0f);
+            ccdOrder[i] = i;
+        }
+        MiscUtil.quickSort(ccdOrder, ccdSweptMins, count);
+        var sweptMax = Float.NEGATIVE_INFINITY;
+        for (var k = 0; k < count; k++) {
+            var i = ccdOrder[k];
+            ccdRanks[i] = k;
+            sweptMax = Math.max(sweptMax, ccdSweptMaxs[i]);
+            ccdSweptMaxPrefix[k] = sweptMax;
+        }
+    }
+
+    private boolean ccdRelativeOverlap(int a, int b) {
+        for (int i = a * 3, j = b * 3, n = i + 3; i < n; i++, j++) {
+            var motion = ccdMotions[i] - ccdMotions[j];
+            if (ccdAabbMins[i] + Math.min(motion, 0f) > ccdAabbMaxs[j] || ccdAabbMaxs[i] + Math.max(motion, 0f) < ccdAabbMins[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private SphereShape getCcdSphere(float radius) {
+        var key = Float.floatToIntBits(radius);
+        for (var i = 0; i < ccdSphereKeys.length; i++) {
+            if (ccdSphereKeys[i] == key) {
+                return ccdSpheres[i];
+            }
+        }
+        var count = ccdSphereKeys.length;
+        ccdSphereKeys = Arrays.copyOf(ccdSphereKeys, count + 1);
+        ccdSpheres = Arrays.copyOf(ccdSpheres, count + 1);
+        ccdSphereKeys[count] = key;
+        ccdSpheres[count] = new SphereShape(radius);
+        return ccdSpheres[count];
+    }
+
+    private void growCcdBuffers(int capacity) {
+        ccdBodies = Arrays.copyOf(ccdBodies, capacity);
+        ccdShapes = Arrays.copyOf(ccdShapes, capacity);
+        ccdHitFractions = Arrays.copyOf(ccdHitFractions, capacity);
+        ccdAabbMins = Arrays.copyOf(ccdAabbMins, capacity * 3);
+        ccdAabbMaxs = Arrays.copyOf(ccdAabbMaxs, capacity * 3);
+        ccdMotions = Arrays.copyOf(ccdMotions, capacity * 3);
+        var transforms = Arrays.copyOf(ccdTransforms, capacity);
+        for (var i = ccdTransforms.length; i < capacity; i++) {
+            transforms[i] = new Transform();
+        }
+        ccdTransforms = transforms;
     }
 
     protected void predictUnconstraintMotion(float timeStep) {
@@ -261,7 +448,8 @@ public class DiscreteDynamicsWorld extends DynamicsWorld {
                     if (body.isActive()) {
                         body.integrateVelocities(timeStep);
                         body.applyDamping(timeStep);
-                        body.predictIntegratedTransform(timeStep, body.getInterpolationWorldTransform(tmpTrans));
+                        body.predictIntegratedTransform(timeStep, tmpTrans);
+                        body.setInterpolationWorldTransform(tmpTrans);
                     }
                 }
             }
@@ -276,28 +464,42 @@ public class DiscreteDynamicsWorld extends DynamicsWorld {
         return this;
     }
 
+    private static class CcdWorker {
+        public final Transform tmpTrans = new Transform();
+        public final Transform otherTrans = new Transform();
+        public final Transform relativeTrans = new Transform();
+        public final ClosestNotMeConvexResultCallback sweepResults = new ClosestNotMeConvexResultCallback();
+    }
+
     private static class ClosestNotMeConvexResultCallback extends ClosestConvexResultCallback {
-        private final CollisionObject me;
-        private final OverlappingPairCache pairCache;
-        private final Dispatcher dispatcher;
+        private final ArrayList<PersistentManifold> manifoldArray = new ArrayList<>();
+        private final Vector3 relativeVelocity = new Vector3();
+        private CollisionObject me;
+        private OverlappingPairCache pairCache;
+        private Dispatcher dispatcher;
+        private boolean[] pending;
 
-        public ClosestNotMeConvexResultCallback(CollisionObject me, Vector3 fromA, Vector3 toA, OverlappingPairCache pairCache, Dispatcher dispatcher) {
-            super(fromA, toA);
+        public ClosestNotMeConvexResultCallback() {
+            super(new Vector3(), new Vector3());
+        }
+
+        public void init(CollisionObject me, Vector3 fromA, Vector3 toA, OverlappingPairCache pairCache, Dispatcher dispatcher, boolean[] pending) {
             this.me = me;
             this.pairCache = pairCache;
             this.dispatcher = dispatcher;
+            this.pending = pending;
+            convexFromWorld.set(fromA);
+            convexToWorld.set(toA);
+            closestHitFraction = 1f;
+            hitCollisionObject = null;
         }
 
         @Override
         public float addSingleResult(LocalConvexResult convexResult, boolean normalInWorldSpace) {
-            if (convexResult.hitCollisionObject == me) {
+            if (convexResult.hitCollisionObject == me || convexResult.hitFraction <= MIN_CCD_HIT_FRACTION) {
                 return 1f;
             }
-            Vector3 linVelA = new Vector3(), linVelB = new Vector3();
-            linVelA.set(convexToWorld).sub(convexFromWorld);
-            linVelB.set(0f, 0f, 0f);
-            var relativeVelocity = new Vector3();
-            relativeVelocity.set(linVelA).sub(linVelB);
+            relativeVelocity.set(convexToWorld).sub(convexFromWorld);
             var allowedPenetration = 0f;
             if (convexResult.hitNormalLocal.dot(relativeVelocity) >= -allowedPenetration) {
                 return 1f;
@@ -307,20 +509,29 @@ public class DiscreteDynamicsWorld extends DynamicsWorld {
 
         @Override
         public boolean needsCollision(BroadPhaseProxy proxy0) {
-            if (proxy0.clientObject == me) {
+            if (proxy0.clientObject == me || pending[((CollisionObject) proxy0.clientObject).getWorldArrayIndex()]) {
                 return false;
             }
+            return needsSweep(proxy0);
+        }
+
+        public boolean needsSweep(BroadPhaseProxy proxy0) {
             if (!super.needsCollision(proxy0)) {
                 return false;
             }
             var otherObj = (CollisionObject) proxy0.clientObject;
             if (dispatcher.needsResponse(me, otherObj)) {
-                var manifoldArray = new ArrayList<PersistentManifold>();
                 var collisionPair = pairCache.findPair(me.getBroadphaseHandle(), proxy0);
                 if (collisionPair != null) {
                     if (collisionPair.algorithm != null) {
+                        manifoldArray.clear();
                         collisionPair.algorithm.getAllContactManifolds(manifoldArray);
-                        return manifoldArray.stream().noneMatch(manifold -> manifold.getNumContacts() > 0);
+                        for (var manifold : manifoldArray) {
+                            if (manifold.getNumContacts() > 0) {
+                                return false;
+                            }
+                        }
+                        return true;
                     }
                 }
             }
@@ -77,10 +77,12 @@ public class SequentialImpulseConstraintSolver implements ConstraintSolver {
         var vel2Dotn = contactConstraint.contactNormal.dot(body2.linearVelocity) + contactConstraint.relpos2CrossNormal.dot(body2.angularVelocity);
         rel_vel = vel1Dotn - vel2Dotn;
         var positionalError = 0.f;
-        if (!solverInfo.splitImpulse || contactConstraint.penetration > solverInfo.splitImpulsePenetrationThreshold) {
+        var velocityError = contactConstraint.restitution - rel_vel;
+        if (contactConstraint.penetration > 0f) {
+            velocityError -= contactConstraint.penetration / solverInfo.timeStep;
+        } else if (!solverInfo.splitImpulse || contactConstraint.penetration > solverInfo.splitImpulsePenetrationThreshold) {
             positionalError = -contactConstraint.penetration * solverInfo.erp / solverInfo.timeStep;
         }
-        var velocityError = contactConstraint.restitution - rel_vel;
         var penetrationImpulse = positionalError * contactConstraint.jacDiagABInv;
         var velocityImpulse = velocityError * contactConstraint.jacDiagABInv;
         normalImpulse = penetrationImpulse + velocityImpulse;
@@ -233,7 +235,7 @@ public class SequentialImpulseConstraintSolver implements ConstraintSolver {
             float relaxation;
             for (var j = 0; j < manifold.getNumContacts(); j++) {
                 var cp = manifold.getContactPoint(j);
-                if (cp.getDistance() <= 0f) {
+                if (cp.getDistance() <= 0f || infoGlobal.useSpeculativeContacts) {
                     cp.getPositionWorldOnA(pos1);
                     cp.getPositionWorldOnB(pos2);
                     rel_pos1.set(pos1).sub(colObj0.getWorldTransform(tmpTrans).origin);
@@ -289,15 +291,20 @@ public class SequentialImpulseConstraintSolver implements ConstraintSolver {
                     }
                     vel.set(vel1).sub(vel2);
                     rel_vel = cp.normalWorldOnB.dot(vel);
-                    solverConstraint.penetration = Math.min(cp.getDistance() + infoGlobal.linearSlop, 0f);
                     solverConstraint.friction = cp.combinedFriction;
-                    solverConstraint.restitution = restitutionCurve(rel_vel, cp.combinedRestitution);
-                    if (solverConstraint.restitution <= 0f) {
+                    if (cp.getDistance() > 0f) {
+                        solverConstraint.penetration = cp.getDistance();
                         solverConstraint.restitution = 0f;
-                    }
-                    var penVel = -solverConstraint.penetration / infoGlobal.timeStep;
-                    if (solverConstraint.restitution > penVel) {
-                        solverConstraint.penetration = 0f;
+                    } else {
+                        solverConstraint.penetration = Math.min(cp.getDistance() + infoGlobal.linearSlop, 0f);
+                        solverConstraint.restitution = restitutionCurve(rel_vel, cp.combinedRestitution);
+                        if (solverConstraint.restitution <= 0f) {
+                            solverConstraint.restitution = 0f;
+                        }
+                        var penVel = -solverConstraint.penetration / infoGlobal.timeStep;
+                        if (solverConstraint.restitution > penVel) {
+                            solverConstraint.penetration = 0f;
+                        }
                     }
                     solverConstraint.appliedImpulse = 0f;
                     solverConstraint.appliedPushImpulse = 0f;
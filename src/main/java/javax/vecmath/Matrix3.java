@@ -101,14 +101,45 @@ public final class Matrix3 {
         return v;
     }
 
+    public Vector3 getColumn(int column, Vector3 v) {
+        if (column == 0) {
+            v.x = m00;
+            v.y = m10;
+            v.z = m20;
+        } else if (column == 1) {
+            v.x = m01;
+            v.y = m11;
+            v.z = m21;
+        } else if (column == 2) {
+            v.x = m02;
+            v.y = m12;
+            v.z = m22;
+        } else {
+            throw new ArrayIndexOutOfBoundsException("column must be 0 to 2 and is " + column);
+        }
+        return v;
+    }
+
     private float getElement(int row, int column) {
-        switch (row) {
+        switch (row * 3 + column) {
             case 0:
-                return new float[]{m00, m01, m02}[column];
+                return m00;
             case 1:
-                return new float[]{m10, m11, m12}[column];
+                return m01;
             case 2:
-                return new float[]{m20, m21, m22}[column];
+                return m02;
+            case 3:
+                return m10;
+            case 4:
+                return m11;
+            case 5:
+                return m12;
+            case 6:
+                return m20;
+            case 7:
+                return m21;
+            case 8:
+                return m22;
             default:
                 throw new ArrayIndexOutOfBoundsException();
         }
@@ -137,26 +168,27 @@ public final class Matrix3 {
 
     public Quaternion getRotation(Quaternion dest) {
         var trace = m00 + m11 + m22;
-        var temp = new Float[4];
         if (trace > 0f) {
             var s = (float) Math.sqrt(trace + 1f);
-            temp[3] = s * 0.5f;
+            var w = s * 0.5f;
             s = 0.5f / s;
-            temp[0] = (m21 - m12) * s;
-            temp[1] = (m02 - m20) * s;
-            temp[2] = (m10 - m01) * s;
-        } else {
-            var i = m00 < m11 ? m11 < m22 ? 2 : 1 : m00 < m22 ? 2 : 0;
-            var j = (i + 1) % 3;
-            var k = (i + 2) % 3;
-            var s = (float) Math.sqrt(getElement(i, i) - getElement(j, j) - getElement(k, k) + 1f);
-            temp[i] = s * 0.5f;
-            s = 0.5f / s;
-            temp[3] = (getElement(k, j) - getElement(j, k)) * s;
-            temp[j] = (getElement(j, i) + getElement(i, j)) * s;
-            temp[k] = (getElement(k, i) + getElement(i, k)) * s;
+            return dest.set((m21 - m12) * s, (m02 - m20) * s, (m10 - m01) * s, w);
+        }
+        var i = m00 < m11 ? m11 < m22 ? 2 : 1 : m00 < m22 ? 2 : 0;
+        var j = (i + 1) % 3;
+        var k = (i + 2) % 3;
+        var s = (float) Math.sqrt(getElement(i, i) - getElement(j, j) - getElement(k, k) + 1f);
+        var qi = s * 0.5f;
+        s = 0.5f / s;
+        var w = (getElement(k, j) - getElement(j, k)) * s;
+        var qj = (getElement(j, i) + getElement(i, j)) * s;
+        var qk = (getElement(k, i) + getElement(i, k)) * s;
+        if (i == 0) {
+            return dest.set(qi, qj, qk, w);
+        } else if (i == 1) {
+            return dest.set(qk, qi, qj, w);
         }
-        return dest.set(temp[0], temp[1], temp[2], temp[3]);
+        return dest.set(qj, qk, qi, w);
     }
 
     @Override